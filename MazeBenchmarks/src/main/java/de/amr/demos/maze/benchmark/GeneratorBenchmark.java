@@ -0,0 +1,79 @@
+package de.amr.demos.maze.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridPosition;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.GridFactory;
+import de.amr.maze.alg.core.MazeGenerator;
+
+/**
+ * Measures the maze generators of the demo app on square grids without any observers or animation.
+ * <p>
+ * The generators are taken from the catalogue of the demo app by {@link MazeBenchmarkApp}. When running the benchmark
+ * directly, only the default generators are run unless others are given with option {@code -p generator=...}.
+ * <p>
+ * Each invocation creates a generator for an empty grid and creates the maze starting at the grid center. The empty
+ * grid is created before the invocation and is not measured.
+ * 
+ * @author Armin Reichert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeneratorBenchmark {
+
+	/** Simple class name of the generator. */
+	@Param({ "KruskalMST", "Eller" })
+	public String generator;
+
+	/** Number of columns and rows. */
+	@Param({ "100", "500", "1000", "2000", "4000" })
+	public int size;
+
+	/** Number of neighbors of the grid topology (4 or 8). */
+	@Param({ "4", "8" })
+	public int topology;
+
+	private Constructor<?> generatorConstructor;
+	private GridTopology gridTopology;
+	private GridGraph2D<TraversalState, Integer> grid;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws ReflectiveOperationException {
+		generatorConstructor = MazeCatalogue.generator(generator).getAlgorithmClass().getConstructor(GridGraph2D.class);
+		gridTopology = MazeCatalogue.topology(topology);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		grid = GridFactory.emptyGrid(size, size, gridTopology, TraversalState.UNVISITED, 0);
+	}
+
+	@Benchmark
+	public GridGraph2D<TraversalState, Integer> createMaze() throws ReflectiveOperationException {
+		var gen = (MazeGenerator) generatorConstructor.newInstance(grid);
+		int start = grid.cell(GridPosition.CENTER);
+		gen.createMaze(grid.col(start), grid.row(start));
+		return grid;
+	}
+}
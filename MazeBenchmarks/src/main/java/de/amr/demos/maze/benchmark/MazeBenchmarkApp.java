@@ -0,0 +1,136 @@
+package de.amr.demos.maze.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.tinylog.Logger;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+import de.amr.maze.demo.model.Algorithm;
+import de.amr.maze.demo.model.GeneratorTag;
+import de.amr.maze.demo.model.SolverTag;
+
+/**
+ * Runs the maze benchmarks with the GC profiler and writes the results as JSON file, e.g. to compare the results
+ * before and after upgrading the algorithm libraries.
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar
+ * java -jar target/benchmarks.jar -gen KruskalMST,Eller -sizes 100,1000 -topologies 4 -result kruskal-eller.json
+ * java -jar target/benchmarks.jar -gen KruskalMST,RegionalKruskalMST,Eller,ParallelEller -sizes 2000,4000 -topologies 4
+ * java -jar target/benchmarks.jar -suite solvers -mazes TREE,DENSE -metrics MANHATTAN
+ * </pre>
+ * 
+ * By default, generators and solvers tagged as slow or as working on small grids only are not run because they take
+ * hours or fail on the larger grids.
+ * 
+ * @author Armin Reichert
+ */
+public class MazeBenchmarkApp {
+
+	public static class Params {
+
+		@Parameter(names = { "-suite" }, description = "benchmark suite (generators, solvers)")
+		public String suite = "generators";
+
+		@Parameter(names = { "-generators", "-gen" }, description = "comma-separated generator class names (default: all fast ones)")
+		public List<String> generators = new ArrayList<>();
+
+		@Parameter(names = { "-solvers" }, description = "comma-separated solver class names (default: all fast ones)")
+		public List<String> solvers = new ArrayList<>();
+
+		@Parameter(names = { "-all" }, description = "also run slow algorithms and generators for small grids")
+		public boolean all = false;
+
+		@Parameter(names = { "-sizes" }, description = "comma-separated grid sizes (default: as annotated)")
+		public List<String> sizes = new ArrayList<>();
+
+		@Parameter(names = { "-topologies" }, description = "comma-separated number of neighbors (generators only)")
+		public List<String> topologies = new ArrayList<>();
+
+		@Parameter(names = { "-mazes" }, description = "comma-separated fixture mazes TREE, SPARSE, DENSE (solvers only)")
+		public List<String> mazes = new ArrayList<>();
+
+		@Parameter(names = { "-metrics" }, description = "comma-separated metrics (solvers only)")
+		public List<String> metrics = new ArrayList<>();
+
+		@Parameter(names = { "-routes" }, description = "comma-separated routes like TOP_LEFT:BOTTOM_RIGHT (solvers only)")
+		public List<String> routes = new ArrayList<>();
+
+		@Parameter(names = { "-result" }, description = "JSON result file (default: jmh-<suite>.json)")
+		public String result;
+
+		@Parameter(names = { "-forks", "-f" }, description = "number of forks (default: as annotated)")
+		public int forks = -1;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		var params = new Params();
+		JCommander.newBuilder().addObject(params).build().parse(args);
+		String result = params.result != null ? params.result : "jmh-%s.json".formatted(params.suite);
+		var options = new OptionsBuilder().addProfiler(GCProfiler.class).resultFormat(ResultFormatType.JSON).result(result);
+		switch (params.suite) {
+		case "generators" -> {
+			var generators = params.generators.isEmpty() ? defaultGenerators(params.all) : params.generators;
+			generators.forEach(MazeCatalogue::generator); // fail early for unknown names
+			Logger.info(() -> "Benchmarking %d generators, results go to %s".formatted(generators.size(), result));
+			options.include(GeneratorBenchmark.class.getSimpleName());
+			options.param("generator", generators.toArray(String[]::new));
+			param(options, "topology", params.topologies);
+		}
+		case "solvers" -> {
+			var solvers = params.solvers.isEmpty() ? defaultSolvers(params.all) : params.solvers;
+			solvers.forEach(MazeCatalogue::solver); // fail early for unknown names
+			Logger.info(() -> "Benchmarking %d solvers, results go to %s".formatted(solvers.size(), result));
+			options.include(PathFinderBenchmark.class.getSimpleName());
+			options.param("solver", solvers.toArray(String[]::new));
+			param(options, "maze", params.mazes);
+			param(options, "metric", params.metrics);
+			param(options, "route", params.routes);
+		}
+		default -> throw new IllegalArgumentException("Unknown benchmark suite: " + params.suite);
+		}
+		param(options, "size", params.sizes);
+		if (params.forks >= 0) {
+			options.forks(params.forks);
+		}
+		new Runner(options.build()).run();
+	}
+
+	// keeps the annotated values if no values are given
+	private static void param(ChainedOptionsBuilder options, String name, List<String> values) {
+		if (!values.isEmpty()) {
+			options.param(name, values.toArray(String[]::new));
+		}
+	}
+
+	private static List<String> defaultGenerators(boolean all) {
+		/*@formatter:off*/
+		return MazeCatalogue.generators()
+			.filter(generator -> all || !(generator.isTagged(GeneratorTag.SLOW) || generator.isTagged(GeneratorTag.SMALL_GRID_ONLY)))
+			.map(MazeBenchmarkApp::name)
+			.toList();
+		/*@formatter:on*/
+	}
+
+	private static List<String> defaultSolvers(boolean all) {
+		/*@formatter:off*/
+		return MazeCatalogue.solvers()
+			.filter(solver -> all || !solver.isTagged(SolverTag.SLOW))
+			.map(MazeBenchmarkApp::name)
+			.toList();
+		/*@formatter:on*/
+	}
+
+	private static String name(Algorithm algorithm) {
+		return algorithm.getAlgorithmClass().getSimpleName();
+	}
+}
@@ -0,0 +1,49 @@
+package de.amr.demos.maze.benchmark;
+
+import java.util.stream.Stream;
+
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+import de.amr.maze.demo.model.Algorithm;
+import de.amr.maze.demo.model.MazeDemoModel;
+
+/**
+ * Access to the generator and solver catalogue of the demo app, so the benchmarks cover the same algorithms as the
+ * app. Benchmark parameters are strings, algorithms are referenced by their simple class name.
+ * 
+ * @author Armin Reichert
+ */
+class MazeCatalogue {
+
+	private static final MazeDemoModel MODEL = new MazeDemoModel();
+
+	private MazeCatalogue() {
+	}
+
+	static Stream<Algorithm> generators() {
+		return MODEL.generators();
+	}
+
+	static Algorithm generator(String name) {
+		return generators().filter(generator -> generator.getAlgorithmClass().getSimpleName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown generator: " + name));
+	}
+
+	static Stream<Algorithm> solvers() {
+		return MODEL.solvers();
+	}
+
+	static Algorithm solver(String name) {
+		return solvers().filter(solver -> solver.getAlgorithmClass().getSimpleName().equals(name)).findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown solver: " + name));
+	}
+
+	static GridTopology topology(int numNeighbors) {
+		return switch (numNeighbors) {
+		case 4 -> Grid4Topology.get();
+		case 8 -> Grid8Topology.get();
+		default -> throw new IllegalArgumentException("Illegal number of neighbors: " + numNeighbors);
+		};
+	}
+}
@@ -0,0 +1,73 @@
+package de.amr.demos.maze.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.tinylog.Logger;
+
+import de.amr.demos.maze.common.MazeFile;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.ObservableGridGraph;
+import de.amr.maze.alg.ust.WilsonUSTRandomCell;
+import de.amr.maze.demo.model.MazeDemoModel;
+
+/**
+ * Pre-generated mazes used by the benchmarks. The mazes are random, so each maze is generated once and saved as maze
+ * file into the fixture directory (system property {@code maze.fixtures}, default {@code maze-fixtures}). All later
+ * benchmark runs load the same mazes, delete the directory to get new ones.
+ * 
+ * @author Armin Reichert
+ */
+public class MazeFixtures {
+
+	/** Kinds of fixture mazes. */
+	public enum Kind {
+		/** perfect maze (spanning tree), exactly one path between any two cells */
+		TREE,
+		/** spanning tree plus 10% of the missing edges */
+		SPARSE,
+		/** spanning tree plus 50% of the missing edges */
+		DENSE
+	}
+
+	private MazeFixtures() {
+	}
+
+	static Path directory() {
+		return Path.of(System.getProperty("maze.fixtures", "maze-fixtures"));
+	}
+
+	/**
+	 * @param kind fixture kind
+	 * @param size number of columns and rows
+	 * @return the fixture maze, generated and saved if it does not exist yet
+	 */
+	static synchronized ObservableGridGraph<TraversalState, Integer> load(Kind kind, int size) {
+		Path file = directory().resolve("%s-%d.%s".formatted(kind.name().toLowerCase(), size, MazeFile.EXTENSION));
+		try {
+			if (!Files.exists(file)) {
+				Files.createDirectories(file.getParent());
+				MazeFile.save(generate(kind, size), file);
+				Logger.info(() -> "Generated fixture maze %s".formatted(file));
+			}
+			return MazeFile.load(file);
+		} catch (IOException x) {
+			throw new UncheckedIOException("Could not load fixture maze " + file, x);
+		}
+	}
+
+	private static ObservableGridGraph<TraversalState, Integer> generate(Kind kind, int size) {
+		var model = new MazeDemoModel();
+		model.setGridTopology(Grid4Topology.get());
+		model.createGridSilently(size, size, false, TraversalState.UNVISITED);
+		switch (kind) {
+		case TREE -> new WilsonUSTRandomCell(model.getGrid()).createMaze(0, 0);
+		case SPARSE -> model.randomGrid(true);
+		case DENSE -> model.randomGrid(false);
+		}
+		return model.getGrid();
+	}
+}
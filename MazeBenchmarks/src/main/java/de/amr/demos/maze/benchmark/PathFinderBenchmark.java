@@ -0,0 +1,119 @@
+package de.amr.demos.maze.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tinylog.Logger;
+
+import de.amr.demos.maze.benchmark.MazeFixtures.Kind;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridPosition;
+import de.amr.graph.pathfinder.api.GraphSearch;
+import de.amr.graph.pathfinder.api.Path;
+import de.amr.maze.demo.model.Algorithm;
+import de.amr.maze.demo.model.MazeDemoModel;
+import de.amr.maze.demo.model.Metric;
+
+/**
+ * Measures the path finders of the demo app on pre-generated mazes (see {@link MazeFixtures}).
+ * <p>
+ * The solvers are taken from the catalogue of the demo app by {@link MazeBenchmarkApp}. Each invocation creates the
+ * solver like the demo app does and searches a path between the cells given by the route, e.g.
+ * {@code TOP_LEFT:BOTTOM_RIGHT}. The metric only has an effect on the informed solvers.
+ * <p>
+ * Searches are deterministic, so the number of vertices expanded by a search is computed once per trial, outside of
+ * the measurement, and logged. It is also reported as secondary result "expandedVertices", a rate like the primary
+ * result (JMH would sum up a plain count over iterations and forks). Divided by the primary result, it gives the
+ * vertices expanded per search.
+ * 
+ * @author Armin Reichert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PathFinderBenchmark {
+
+	/** Simple class name of the solver. */
+	@Param({ "BreadthFirstSearch", "AStarSearch" })
+	public String solver;
+
+	@Param({ "TREE", "SPARSE", "DENSE" })
+	public Kind maze;
+
+	/** Number of columns and rows. */
+	@Param({ "100", "1000" })
+	public int size;
+
+	@Param({ "EUCLIDEAN", "MANHATTAN", "CHEBYSHEV" })
+	public Metric metric;
+
+	/** Source and target position, separated by a colon. */
+	@Param({ "TOP_LEFT:BOTTOM_RIGHT", "TOP_RIGHT:BOTTOM_LEFT", "CENTER:BOTTOM_RIGHT" })
+	public String route;
+
+	/**
+	 * Counts the vertices expanded by the measured searches, reported per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+
+		public long expandedVertices;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			expandedVertices = 0;
+		}
+	}
+
+	private MazeDemoModel model;
+	private Algorithm solverInfo;
+	private int source;
+	private int target;
+	private long expandedPerSearch;
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		String[] positions = route.split(":");
+		model = new MazeDemoModel();
+		model.setGrid(MazeFixtures.load(maze, size));
+		model.setMetric(metric);
+		model.setSolverSource(GridPosition.valueOf(positions[0]));
+		model.setSolverTarget(GridPosition.valueOf(positions[1]));
+		solverInfo = MazeCatalogue.solver(solver);
+		source = model.getGrid().cell(model.getSolverSource());
+		target = model.getGrid().cell(model.getSolverTarget());
+		expandedPerSearch = countExpandedVertices();
+		Logger.info(() -> "%s %s %dx%d %s %s: %d expanded vertices".formatted(solver, maze, size, size, metric, route,
+				expandedPerSearch));
+	}
+
+	private long countExpandedVertices() {
+		GraphSearch search = model.createSolverInstance(solverInfo);
+		search.findPath(source, target);
+		GridGraph2D<TraversalState, Integer> grid = model.getGrid();
+		return grid.vertices().filter(v -> search.getState(v) != TraversalState.UNVISITED).count();
+	}
+
+	@Benchmark
+	public Path findPath(Counters counters) {
+		counters.expandedVertices += expandedPerSearch;
+		return model.createSolverInstance(solverInfo).findPath(source, target);
+	}
+}
@@ -0,0 +1,402 @@
+package de.amr.demos.maze.common;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Records a sequence of buffered images in an animated PNG (APNG) file.
+ * <p>
+ * Like the GIF recorder, it tracks the union of the image areas changed since the last written frame. Except for the
+ * first frame, only this area is stored, as a frame at its offset ({@code fcTL} chunk) that replaces the area
+ * ({@code blend_op=SOURCE}) and is kept as the base of the next frame ({@code dispose_op=NONE}). Other than GIF, the
+ * frame delays have millisecond precision and full-color frames are stored without color reduction.
+ * <p>
+ * If a palette is set, frames are stored as palette images with the smallest possible bit depth, otherwise as 8-bit
+ * RGB images. Each row uses the "Up" filter, and one {@link Deflater} is reused for all frames.
+ * <p>
+ * The number of frames is only known when the recording is closed, it is then written into the {@code acTL} chunk at
+ * the start of the file.
+ *
+ * @author Armin Reichert
+ */
+public class ApngRecorder implements FrameRecorder {
+
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int FILTER_UP = 2;
+	private static final int DISPOSE_OP_NONE = 0;
+	private static final int BLEND_OP_SOURCE = 0;
+	// the acTL chunk follows the signature and the IHDR chunk
+	private static final int ACTL_POSITION = SIGNATURE.length + 12 + 13;
+
+	private final FrameSampler sampler = new FrameSampler();
+	private IndexedPalette palette;
+	private int delayMillis;
+	private int endDelayMillis;
+	private boolean loop;
+	private Deflater deflater;
+
+	private FileOutputStream file;
+	private DataOutputStream out;
+	private int width;
+	private int height;
+	private int bitDepth;
+	private int sequenceNumber;
+	private int framesWritten;
+	private BufferedImage lastSource;
+	// union of the areas changed since the last written frame, null if nothing changed
+	private Rectangle changedArea;
+
+	// reused row buffers and compressed frame data
+	private int[] pixels;
+	private byte[] row;
+	private byte[] previousRow;
+	private byte[] filteredRow;
+	private byte[] compressed = new byte[CHUNK_SIZE];
+	private int compressedSize;
+
+	@Override
+	public int getFramesWritten() {
+		return framesWritten;
+	}
+
+	/**
+	 * Lets the recorder store the frames as palette images. Must be set before the recording is started.
+	 *
+	 * @param palette
+	 *                  palette containing the colors used by the recorded images or {@code null} for RGB frames
+	 */
+	public void setPalette(IndexedPalette palette) {
+		this.palette = palette;
+	}
+
+	/**
+	 * Specifies if the animation should loop.
+	 *
+	 * @param loop
+	 *               if it should loop
+	 */
+	public void setLoop(boolean loop) {
+		this.loop = loop;
+	}
+
+	/**
+	 * Sets the delay between frames.
+	 *
+	 * @param delayMillis
+	 *                      delay between frames in milliseconds
+	 */
+	public void setDelayMillis(int delayMillis) {
+		this.delayMillis = delayMillis;
+	}
+
+	/**
+	 * Sets the delay at the end of the animation before it restarts.
+	 *
+	 * @param endDelayMillis
+	 *                         delay after last frame in milliseconds
+	 */
+	public void setEndDelayMillis(int endDelayMillis) {
+		this.endDelayMillis = endDelayMillis;
+	}
+
+	/**
+	 * Sets the scan rate. A scan rate of 5 means that every 5th frame is recorded. Switches off adaptive sampling.
+	 *
+	 * @param scanRate
+	 */
+	public void setScanRate(int scanRate) {
+		sampler.setScanRate(scanRate);
+	}
+
+	/**
+	 * Lets the recorder adapt the scan rate such that the animation has about the given number of frames.
+	 *
+	 * @param frameBudget
+	 *                           number of frames to record
+	 * @param expectedRequests
+	 *                           estimated number of frame requests or 0 if unknown
+	 */
+	public void setFrameBudget(int frameBudget, int expectedRequests) {
+		sampler.setFrameBudget(frameBudget, expectedRequests);
+	}
+
+	/**
+	 * Lets the recorder adapt the scan rate such that the animation plays about the given time.
+	 *
+	 * @param targetDurationMillis
+	 *                               play time of the animation in milliseconds (without end delay)
+	 * @param expectedRequests
+	 *                               estimated number of frame requests or 0 if unknown
+	 */
+	public void setTargetDuration(int targetDurationMillis, int expectedRequests) {
+		sampler.setTargetDuration(targetDurationMillis, expectedRequests);
+	}
+
+	/**
+	 * Starts the recording. The image header is written with the first frame.
+	 *
+	 * @param path
+	 *                   directory where the recording will be stored
+	 * @param fileName
+	 *                   name of the APNG file, an existing file is overwritten
+	 * @throws IOException
+	 *                       if the file could not be created
+	 */
+	public void start(File path, String fileName) throws IOException {
+		path.mkdirs();
+		file = new FileOutputStream(new File(path, fileName));
+		out = new DataOutputStream(new BufferedOutputStream(file, CHUNK_SIZE));
+		deflater = new Deflater(Deflater.BEST_SPEED);
+		sampler.start(delayMillis);
+		sequenceNumber = 0;
+		framesWritten = 0;
+		lastSource = null;
+		changedArea = null;
+	}
+
+	@Override
+	public void requestFrame(BufferedImage source, Rectangle changedArea, boolean always) {
+		if (out == null) {
+			throw new IllegalStateException("Recording is not started or has been stopped");
+		}
+		Rectangle area = changedArea != null ? changedArea : bounds(source);
+		if (this.changedArea == null) {
+			this.changedArea = new Rectangle(area);
+		} else {
+			this.changedArea.add(area);
+		}
+		lastSource = source;
+		if (sampler.accept(always)) {
+			writeFrame(source, this.changedArea, delayMillis);
+			this.changedArea = null;
+		}
+	}
+
+	/**
+	 * Writes the changes since the last written frame as final frame using the end delay, the number of frames and
+	 * closes the file.
+	 */
+	@Override
+	public void close() {
+		if (out == null) {
+			return;
+		}
+		try (DataOutputStream stream = out) {
+			if (lastSource != null) {
+				writeFrame(lastSource, changedArea != null ? changedArea : new Rectangle(), endDelayMillis);
+				writeChunk("IEND", new byte[0], 0, 0);
+				stream.flush();
+				writeAnimationControl();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			deflater.end();
+			out = null;
+			lastSource = null;
+			changedArea = null;
+		}
+	}
+
+	// stops a recording that failed, the incomplete file is left as it is
+	private void abort(Exception cause) {
+		try {
+			out.close();
+		} catch (IOException x) {
+			cause.addSuppressed(x);
+		} finally {
+			deflater.end();
+			out = null;
+		}
+	}
+
+	private static Rectangle bounds(BufferedImage image) {
+		return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+	}
+
+	/*
+	 * Writes the given area of the source image as next frame. The first frame is always written completely and is also
+	 * the default image. An empty area is written as a single pixel because the frame still has to carry its delay time.
+	 */
+	private void writeFrame(BufferedImage source, Rectangle area, int delayMillis) {
+		try {
+			if (framesWritten == 0) {
+				writeHeader(source.getWidth(), source.getHeight());
+			} else if (source.getWidth() != width || source.getHeight() != height) {
+				throw new IllegalArgumentException("Frame size changed to %dx%d".formatted(source.getWidth(),
+						source.getHeight()));
+			}
+			Rectangle region = framesWritten == 0 ? bounds(source) : area.intersection(bounds(source));
+			if (region.isEmpty()) {
+				region = new Rectangle(0, 0, 1, 1);
+			}
+			writeFrameControl(region, delayMillis);
+			compress(source, region);
+			for (int offset = 0; offset < compressedSize; offset += CHUNK_SIZE) {
+				int length = Math.min(CHUNK_SIZE, compressedSize - offset);
+				if (framesWritten == 0) {
+					writeChunk("IDAT", compressed, offset, length);
+				} else {
+					writeChunk("fdAT", sequenceNumber++, compressed, offset, length);
+				}
+			}
+			++framesWritten;
+		} catch (IOException e) {
+			abort(e);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			abort(e);
+			throw e;
+		}
+	}
+
+	private void writeHeader(int width, int height) throws IOException {
+		this.width = width;
+		this.height = height;
+		bitDepth = palette == null ? 8 : bitDepth(palette.numColors());
+		int bytesPerRow = palette == null ? 3 * width : (width * bitDepth + 7) / 8;
+		pixels = new int[width];
+		row = new byte[bytesPerRow];
+		previousRow = new byte[bytesPerRow];
+		filteredRow = new byte[1 + bytesPerRow];
+		filteredRow[0] = FILTER_UP;
+		out.write(SIGNATURE);
+		ByteBuffer data = ByteBuffer.allocate(13);
+		data.putInt(width).putInt(height).put((byte) bitDepth);
+		data.put((byte) (palette == null ? 2 : 3)); // color type: RGB or palette
+		data.put((byte) 0).put((byte) 0).put((byte) 0); // deflate, adaptive filtering, no interlace
+		writeChunk("IHDR", data.array(), 0, 13);
+		// placeholder, the number of frames is written when the recording is closed
+		writeChunk("acTL", new byte[8], 0, 8);
+		if (palette != null) {
+			byte[] colors = new byte[3 * palette.numColors()];
+			for (int i = 0; i < palette.numColors(); ++i) {
+				int rgb = palette.getColorModel().getRGB(i);
+				colors[3 * i] = (byte) (rgb >> 16);
+				colors[3 * i + 1] = (byte) (rgb >> 8);
+				colors[3 * i + 2] = (byte) rgb;
+			}
+			writeChunk("PLTE", colors, 0, colors.length);
+		}
+	}
+
+	private static int bitDepth(int numColors) {
+		return numColors <= 2 ? 1 : numColors <= 4 ? 2 : numColors <= 16 ? 4 : 8;
+	}
+
+	private void writeFrameControl(Rectangle region, int delayMillis) throws IOException {
+		ByteBuffer data = ByteBuffer.allocate(26);
+		data.putInt(sequenceNumber++);
+		data.putInt(region.width).putInt(region.height).putInt(region.x).putInt(region.y);
+		data.putShort((short) Math.min(delayMillis, 0xFFFF)).putShort((short) 1000);
+		data.put((byte) DISPOSE_OP_NONE).put((byte) BLEND_OP_SOURCE);
+		writeChunk("fcTL", data.array(), 0, 26);
+	}
+
+	private void writeAnimationControl() throws IOException {
+		ByteBuffer data = ByteBuffer.allocate(8);
+		data.putInt(framesWritten).putInt(loop ? 0 : 1); // number of plays, 0 = infinite
+		ByteBuffer chunk = ByteBuffer.allocate(20);
+		chunk.putInt(8).put("acTL".getBytes(StandardCharsets.US_ASCII)).put(data.array());
+		chunk.putInt((int) crc("acTL", data.array(), 0, 8)).flip();
+		file.getChannel().write(chunk, ACTL_POSITION);
+	}
+
+	/*
+	 * Compresses the rows of the given region, each row filtered against the row above inside the region.
+	 */
+	private void compress(BufferedImage source, Rectangle region) {
+		deflater.reset();
+		compressedSize = 0;
+		int rowLength = palette == null ? 3 * region.width : (region.width * bitDepth + 7) / 8;
+		Arrays.fill(previousRow, 0, rowLength, (byte) 0);
+		for (int y = region.y; y < region.y + region.height; ++y) {
+			source.getRGB(region.x, y, region.width, 1, pixels, 0, region.width);
+			if (palette != null) {
+				packIndices(region.width);
+			} else {
+				for (int x = 0, i = 0; x < region.width; ++x) {
+					row[i++] = (byte) (pixels[x] >> 16);
+					row[i++] = (byte) (pixels[x] >> 8);
+					row[i++] = (byte) pixels[x];
+				}
+			}
+			for (int i = 0; i < rowLength; ++i) {
+				filteredRow[i + 1] = (byte) (row[i] - previousRow[i]);
+			}
+			deflater.setInput(filteredRow, 0, 1 + rowLength);
+			while (!deflater.needsInput()) {
+				deflate();
+			}
+			byte[] tmp = previousRow;
+			previousRow = row;
+			row = tmp;
+		}
+		deflater.finish();
+		while (!deflater.finished()) {
+			deflate();
+		}
+	}
+
+	private void deflate() {
+		if (compressedSize == compressed.length) {
+			compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+		}
+		compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+	}
+
+	private void packIndices(int numPixels) {
+		int pixelsPerByte = 8 / bitDepth;
+		for (int i = 0, x = 0; x < numPixels; ++i) {
+			int b = 0;
+			for (int k = 0; k < pixelsPerByte; ++k, ++x) {
+				b <<= bitDepth;
+				if (x < numPixels) {
+					b |= palette.index(pixels[x]);
+				}
+			}
+			row[i] = (byte) b;
+		}
+	}
+
+	private void writeChunk(String type, byte[] data, int offset, int length) throws IOException {
+		out.writeInt(length);
+		out.write(type.getBytes(StandardCharsets.US_ASCII));
+		out.write(data, offset, length);
+		out.writeInt((int) crc(type, data, offset, length));
+	}
+
+	// chunk starting with a sequence number
+	private void writeChunk(String type, int sequenceNumber, byte[] data, int offset, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		byte[] sequenceBytes = ByteBuffer.allocate(4).putInt(sequenceNumber).array();
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(sequenceBytes);
+		crc.update(data, offset, length);
+		out.writeInt(4 + length);
+		out.write(typeBytes);
+		out.write(sequenceBytes);
+		out.write(data, offset, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static long crc(String type, byte[] data, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(type.getBytes(StandardCharsets.US_ASCII));
+		crc.update(data, offset, length);
+		return crc.getValue();
+	}
+}
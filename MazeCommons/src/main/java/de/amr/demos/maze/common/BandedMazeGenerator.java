@@ -0,0 +1,348 @@
+package de.amr.demos.maze.common;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Creates mazes in parallel using row-local algorithms. The grid is split into horizontal bands of rows which are
+ * carved independently on the common fork-join pool. The number of bands does not depend on the number of processors,
+ * so the same seed always creates the same maze.
+ * <p>
+ * Binary tree and sidewinder mazes only carve passages to the east and south, and each row only depends on itself, so
+ * the bands need no further work. For Eller's algorithm, each band is a spanning forest whose trees all reach the last
+ * row of the band. The bands are then joined from top to bottom by one more Eller step: the last row of each band is
+ * the merge row that connects each of its sets to the band below. The result is always a perfect maze.
+ * <p>
+ * The passages of a band are collected in a bit set and written into the grid as soon as the band is complete. Grids
+ * are not thread-safe, so the writing is done by one band at a time while the other bands are still carved.
+ *
+ * @author Armin Reichert
+ */
+public class BandedMazeGenerator {
+
+	/**
+	 * Maze algorithms working row by row.
+	 */
+	public enum RowAlgorithm {
+		BINARY_TREE, SIDEWINDER, ELLER
+	}
+
+	private static final int EAST = 0, SOUTH = 1;
+	private static final int DEFAULT_NUM_BANDS = 64;
+
+	@FunctionalInterface
+	private interface Carver {
+
+		void carve(int col, int row, int dir);
+	}
+
+	private final RowAlgorithm algorithm;
+	private final int bandRows;
+	private SplittableRandom rnd = new SplittableRandom();
+
+	/**
+	 * Creates a generator using 64 bands, or one band per row for grids with less rows.
+	 *
+	 * @param algorithm
+	 *                    row algorithm
+	 */
+	public BandedMazeGenerator(RowAlgorithm algorithm) {
+		this(algorithm, 0);
+	}
+
+	/**
+	 * @param algorithm
+	 *                    row algorithm
+	 * @param bandRows
+	 *                    number of rows of a band, 0 = 64 bands
+	 */
+	public BandedMazeGenerator(RowAlgorithm algorithm, int bandRows) {
+		if (bandRows < 0) {
+			throw new IllegalArgumentException("Illegal band size: " + bandRows);
+		}
+		this.algorithm = algorithm;
+		this.bandRows = bandRows;
+	}
+
+	public RowAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Sets the seed of the random number generator used for the next maze.
+	 *
+	 * @param seed
+	 *               seed value
+	 */
+	public void setSeed(long seed) {
+		rnd = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Creates a maze in the given empty grid and sets all cells to state {@link TraversalState#COMPLETED}.
+	 *
+	 * @param grid
+	 *               empty grid
+	 */
+	public void generate(GridGraph2D<TraversalState, ?> grid) {
+		generate(grid.numCols(), grid.numRows(), (col, row, dir) -> {
+			int cell = grid.cell(col, row);
+			grid.addEdge(cell, dir == EAST ? grid.cell(col + 1, row) : grid.cell(col, row + 1));
+		});
+		grid.vertices().forEach(cell -> grid.set(cell, TraversalState.COMPLETED));
+	}
+
+	/**
+	 * Creates a maze in the given empty grid. The cell states are not changed.
+	 *
+	 * @param grid
+	 *               empty grid
+	 */
+	public void generate(MazeGrid grid) {
+		int dirEast = forwardDirection(grid, 1, 0), dirSouth = forwardDirection(grid, 0, 1);
+		generate(grid.numCols(), grid.numRows(),
+				(col, row, dir) -> grid.setEdge(col, row, dir == EAST ? dirEast : dirSouth, true));
+	}
+
+	private static int forwardDirection(MazeGrid grid, int dx, int dy) {
+		for (int dir = 0; dir < grid.numForwardDirections(); ++dir) {
+			if (grid.dx(dir) == dx && grid.dy(dir) == dy) {
+				return dir;
+			}
+		}
+		throw new IllegalArgumentException("Maze has no direction (%d,%d)".formatted(dx, dy));
+	}
+
+	private int bandRows(int numCols, int numRows) {
+		int rows = bandRows > 0 ? bandRows : (numRows + DEFAULT_NUM_BANDS - 1) / DEFAULT_NUM_BANDS;
+		// the passage bits of a band must be addressable by an int
+		return (int) Math.min(rows, Integer.MAX_VALUE / (2L * numCols));
+	}
+
+	private void generate(int numCols, int numRows, Carver carver) {
+		int rowsPerBand = bandRows(numCols, numRows);
+		Band[] bands = new Band[(numRows + rowsPerBand - 1) / rowsPerBand];
+		for (int i = 0; i < bands.length; ++i) {
+			int firstRow = i * rowsPerBand;
+			bands[i] = new Band(numCols, numRows, firstRow, Math.min(rowsPerBand, numRows - firstRow), rnd.split());
+		}
+		Arrays.stream(bands).parallel().forEach(band -> {
+			band.carve();
+			synchronized (carver) {
+				band.forEachPassage(carver);
+			}
+		});
+		if (algorithm == RowAlgorithm.ELLER) {
+			joinBands(bands, numCols, carver);
+		}
+	}
+
+	/*
+	 * Joins the Eller bands top-down. Each set of the last row of the upper band gets at least one passage to the lower
+	 * band, a union-find structure over the sets of both rows prevents cycles. Sets [0, n) are the sets of the upper row,
+	 * sets [n, 2n) those of the lower row. Sets of the upper band already connected through the bands above are passed
+	 * on in "merged".
+	 */
+	private void joinBands(Band[] bands, int n, Carver carver) {
+		int[] parent = new int[2 * n];
+		boolean[] joined = new boolean[2 * n]; // if the set is connected to the lower band
+		int[] merged = new int[n];
+		int[] representative = new int[2 * n];
+		Arrays.setAll(merged, i -> i);
+		for (int b = 1; b < bands.length; ++b) {
+			Band upper = bands[b - 1], lower = bands[b];
+			int row = lower.firstRow - 1;
+			for (int i = 0; i < 2 * n; ++i) {
+				parent[i] = i < n ? merged[i] : i;
+				joined[i] = i >= n;
+			}
+			for (int col = 0; col < n; ++col) {
+				int u = find(parent, upper.lastRowSets[col]), v = find(parent, n + lower.firstRowSets[col]);
+				if (u != v && rnd.nextBoolean()) {
+					union(parent, joined, u, v);
+					carver.carve(col, row, SOUTH);
+				}
+			}
+			int offset = rnd.nextInt(n);
+			for (int i = 0; i < n; ++i) {
+				int col = (offset + i) % n;
+				int u = find(parent, upper.lastRowSets[col]);
+				if (!joined[u]) {
+					union(parent, joined, u, find(parent, n + lower.firstRowSets[col]));
+					carver.carve(col, row, SOUTH);
+				}
+			}
+			// the lower band is the upper band of the next step
+			Arrays.fill(representative, -1);
+			for (int set = 0; set < n; ++set) {
+				int root = find(parent, n + set);
+				if (representative[root] == -1) {
+					representative[root] = set;
+				}
+				merged[set] = representative[root];
+			}
+		}
+	}
+
+	private static int find(int[] parent, int set) {
+		while (parent[set] != set) {
+			parent[set] = parent[parent[set]];
+			set = parent[set];
+		}
+		return set;
+	}
+
+	private static void union(int[] parent, boolean[] joined, int u, int v) {
+		parent[u] = v;
+		joined[v] |= joined[u];
+	}
+
+	private class Band {
+
+		private final int numCols;
+		private final int numGridRows;
+		private final int firstRow;
+		private final int numRows;
+		private final SplittableRandom rnd;
+		private BitSet passages;
+		// Eller: sets of the cells of the first and the last band row after carving
+		private int[] firstRowSets;
+		private int[] lastRowSets;
+
+		Band(int numCols, int numGridRows, int firstRow, int numRows, SplittableRandom rnd) {
+			this.numCols = numCols;
+			this.numGridRows = numGridRows;
+			this.firstRow = firstRow;
+			this.numRows = numRows;
+			this.rnd = rnd;
+		}
+
+		void carve() {
+			passages = new BitSet(2 * numCols * numRows);
+			switch (algorithm) {
+			case BINARY_TREE -> carveBinaryTree();
+			case SIDEWINDER -> carveSidewinder();
+			case ELLER -> carveEller();
+			}
+		}
+
+		void forEachPassage(Carver carver) {
+			for (int bit = passages.nextSetBit(0); bit >= 0; bit = passages.nextSetBit(bit + 1)) {
+				int cell = bit / 2;
+				carver.carve(cell % numCols, firstRow + cell / numCols, bit % 2);
+			}
+			passages = null;
+		}
+
+		private void passage(int col, int row, int dir) {
+			passages.set(2 * ((row - firstRow) * numCols + col) + dir);
+		}
+
+		private boolean isLastGridRow(int row) {
+			return row == numGridRows - 1;
+		}
+
+		private void carveBinaryTree() {
+			for (int row = firstRow; row < firstRow + numRows; ++row) {
+				for (int col = 0; col < numCols; ++col) {
+					boolean lastCol = col == numCols - 1;
+					if (isLastGridRow(row)) {
+						if (!lastCol) {
+							passage(col, row, EAST);
+						}
+					} else if (lastCol || rnd.nextBoolean()) {
+						passage(col, row, SOUTH);
+					} else {
+						passage(col, row, EAST);
+					}
+				}
+			}
+		}
+
+		// the last grid row is one long passage, each run of the other rows gets one passage to the south
+		private void carveSidewinder() {
+			for (int row = firstRow; row < firstRow + numRows; ++row) {
+				int runStart = 0;
+				for (int col = 0; col < numCols; ++col) {
+					boolean lastCol = col == numCols - 1;
+					if (isLastGridRow(row)) {
+						if (!lastCol) {
+							passage(col, row, EAST);
+						}
+					} else if (!lastCol && rnd.nextBoolean()) {
+						passage(col, row, EAST);
+					} else {
+						passage(runStart + rnd.nextInt(col - runStart + 1), row, SOUTH);
+						runStart = col + 1;
+					}
+				}
+			}
+		}
+
+		/*
+		 * The sets of the current row are kept in a union-find structure. Before moving to the next row, the sets are
+		 * renumbered so they always are in the range [0, numCols).
+		 */
+		private void carveEller() {
+			int n = numCols;
+			int[] sets = new int[n], parent = new int[n];
+			int[] numCells = new int[n], chosen = new int[n], renumbered = new int[n];
+			boolean[] south = new boolean[n], hasSouth = new boolean[n];
+			Arrays.setAll(sets, i -> i);
+			Arrays.setAll(parent, i -> i);
+			firstRowSets = sets.clone();
+			int lastRow = firstRow + numRows - 1;
+			for (int row = firstRow;; ++row) {
+				for (int col = 0; col + 1 < n; ++col) {
+					int a = find(parent, sets[col]), b = find(parent, sets[col + 1]);
+					if (a != b && (isLastGridRow(row) || rnd.nextBoolean())) {
+						parent[a] = b;
+						passage(col, row, EAST);
+					}
+				}
+				if (row == lastRow) {
+					break;
+				}
+				// each set gets at least one passage to the south, chosen uniformly if no random passage was carved
+				Arrays.fill(numCells, 0);
+				Arrays.fill(hasSouth, false);
+				for (int col = 0; col < n; ++col) {
+					sets[col] = find(parent, sets[col]);
+					south[col] = rnd.nextBoolean();
+					hasSouth[sets[col]] |= south[col];
+					if (rnd.nextInt(++numCells[sets[col]]) == 0) {
+						chosen[sets[col]] = col;
+					}
+				}
+				Arrays.fill(renumbered, -1);
+				int numSets = 0;
+				for (int col = 0; col < n; ++col) {
+					int set = sets[col];
+					if (south[col] || !hasSouth[set] && chosen[set] == col) {
+						passage(col, row, SOUTH);
+						if (renumbered[set] == -1) {
+							renumbered[set] = numSets++;
+						}
+						south[col] = true;
+					}
+				}
+				for (int col = 0; col < n; ++col) {
+					firstRowSets[col] = renumbered[find(parent, firstRowSets[col])];
+				}
+				for (int col = 0; col < n; ++col) {
+					sets[col] = south[col] ? renumbered[sets[col]] : numSets++;
+				}
+				Arrays.setAll(parent, i -> i);
+			}
+			lastRowSets = new int[n];
+			for (int col = 0; col < n; ++col) {
+				firstRowSets[col] = find(parent, firstRowSets[col]);
+				lastRowSets[col] = find(parent, sets[col]);
+			}
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package de.amr.demos.maze.common;
+
+import java.util.Arrays;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.impl.GridFactory;
+import de.amr.graph.grid.impl.ObservableGridGraph;
+
+/**
+ * Grid graph with 4- or 8-neighbor topology storing only primitive data: the traversal state of each cell in one byte
+ * and the edges as bits. All methods use {@code int} cell indices, nothing is boxed.
+ * <p>
+ * Each cell stores the edges to its neighbors in "forward" direction like in a {@link MazeFile}, 2 bits (east, south)
+ * for 4-neighbor topology and 4 bits (east, south-east, south, south-west) for 8-neighbor topology. So a cell needs
+ * 1.25 or 1.5 bytes and a grid with 100 million cells fits into 150 MB. Compact grids can be saved and loaded with
+ * {@link MazeFile} without any conversion.
+ * <p>
+ * A compact grid is a {@link GridGraph2D}, so the maze generators and path finders of the graph library can use it
+ * directly. It cannot be observed, use {@link #toObservableGrid()} to get a grid that can be rendered and animated and
+ * {@link #copyOf(GridGraph2D)} for the opposite conversion.
+ *
+ * @author Armin Reichert
+ */
+public class CompactGrid extends MazeGridGraph {
+
+	private static final TraversalState[] STATES = TraversalState.values();
+
+	/**
+	 * @param grid a grid graph with 4- or 8-neighbor topology
+	 * @return compact copy of the edges and cell states of the grid
+	 */
+	public static CompactGrid copyOf(GridGraph2D<TraversalState, ?> grid) {
+		var copy = new CompactGrid(grid.numCols(), grid.numRows(), grid.getTopology().dirCount());
+		for (int cell = 0; cell < copy.numCells(); ++cell) {
+			copy.set(cell, grid.get(cell));
+			int col = copy.col(cell), row = copy.row(cell);
+			for (int[] dir : copy.forward) {
+				int neighborCol = col + dir[0], neighborRow = row + dir[1];
+				if (copy.isInside(neighborCol, neighborRow)
+						&& grid.adjacent(cell, grid.cell(neighborCol, neighborRow))) {
+					copy.addEdge(cell, copy.cell(neighborCol, neighborRow));
+				}
+			}
+		}
+		return copy;
+	}
+
+	private final int numCols;
+	private final int numRows;
+	private final int numNeighbors;
+	private final int[][] forward;
+	private final byte[] states;
+	private final long[] edgeBits;
+	private long numEdges;
+
+	/**
+	 * Creates an empty grid with all cells in state {@link TraversalState#UNVISITED}.
+	 *
+	 * @param numCols      number of columns
+	 * @param numRows      number of rows
+	 * @param numNeighbors 4 or 8
+	 */
+	public CompactGrid(int numCols, int numRows, int numNeighbors) {
+		if (numNeighbors != 4 && numNeighbors != 8) {
+			throw new IllegalArgumentException("Unsupported grid topology: %d neighbors".formatted(numNeighbors));
+		}
+		if (numCols < 1 || numRows < 1 || (long) numCols * numRows > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Illegal grid size %dx%d".formatted(numCols, numRows));
+		}
+		this.numCols = numCols;
+		this.numRows = numRows;
+		this.numNeighbors = numNeighbors;
+		forward = MazeFile.forwardDirections(numNeighbors);
+		states = new byte[numCols * numRows];
+		edgeBits = new long[Math.toIntExact((numEdgeBits() + 63) / 64)];
+	}
+
+	@Override
+	public int numCols() {
+		return numCols;
+	}
+
+	@Override
+	public int numRows() {
+		return numRows;
+	}
+
+	public int numCells() {
+		return states.length;
+	}
+
+	@Override
+	public int numVertices() {
+		return states.length;
+	}
+
+	@Override
+	public int numNeighbors() {
+		return numNeighbors;
+	}
+
+	@Override
+	public long edgeCount() {
+		return numEdges;
+	}
+
+	long numEdgeBits() {
+		return (long) states.length * forward.length;
+	}
+
+	@Override
+	public boolean isInside(int col, int row) {
+		return 0 <= col && col < numCols && 0 <= row && row < numRows;
+	}
+
+	@Override
+	public TraversalState get(int cell) {
+		return STATES[states[cell]];
+	}
+
+	@Override
+	public void set(int cell, TraversalState state) {
+		states[cell] = (byte) state.ordinal();
+	}
+
+	@Override
+	public TraversalState getState(int col, int row) {
+		return get(cell(col, row));
+	}
+
+	@Override
+	public void setState(int col, int row, TraversalState state) {
+		set(cell(col, row), state);
+	}
+
+	/**
+	 * Sets all cells to the given state.
+	 *
+	 * @param state traversal state
+	 */
+	public void setAll(TraversalState state) {
+		Arrays.fill(states, (byte) state.ordinal());
+	}
+
+	@Override
+	public boolean hasEdge(int col, int row, int dir) {
+		long bit = (long) cell(col, row) * forward.length + dir;
+		return (edgeBits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	@Override
+	public void setEdge(int col, int row, int dir, boolean edge) {
+		if (!isInside(col + forward[dir][0], row + forward[dir][1])) {
+			throw new IllegalArgumentException("No neighbor in direction %d of cell (%d,%d)".formatted(dir, col, row));
+		}
+		int cell = cell(col, row), neighbor = cell(col + forward[dir][0], row + forward[dir][1]);
+		if (edge) {
+			addEdge(cell, neighbor);
+		} else {
+			removeEdge(cell, neighbor);
+		}
+	}
+
+	@Override
+	public boolean adjacent(int either, int other) {
+		long bit = edgeBit(either, other);
+		return bit >= 0 && (edgeBits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	@Override
+	public void addEdge(int either, int other) {
+		long bit = requireEdgeBit(either, other);
+		long mask = 1L << bit;
+		int word = (int) (bit >>> 6);
+		if ((edgeBits[word] & mask) == 0) {
+			edgeBits[word] |= mask;
+			++numEdges;
+		}
+	}
+
+	@Override
+	public void removeEdge(int either, int other) {
+		long bit = requireEdgeBit(either, other);
+		long mask = 1L << bit;
+		int word = (int) (bit >>> 6);
+		if ((edgeBits[word] & mask) != 0) {
+			edgeBits[word] &= ~mask;
+			--numEdges;
+		}
+	}
+
+	/**
+	 * Removes all edges.
+	 */
+	@Override
+	public void removeEdges() {
+		Arrays.fill(edgeBits, 0);
+		numEdges = 0;
+	}
+
+	/**
+	 * Adds all edges between neighbor cells.
+	 */
+	@Override
+	public void fill() {
+		removeEdges();
+		for (int cell = 0; cell < numCells(); ++cell) {
+			int col = col(cell), row = row(cell);
+			for (int[] dir : forward) {
+				if (isInside(col + dir[0], row + dir[1])) {
+					addEdge(cell, cell(col + dir[0], row + dir[1]));
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns the index of the bit storing the edge between the given cells or -1 if the cells are no neighbors.
+	 */
+	private long edgeBit(int either, int other) {
+		if (either > other) {
+			int tmp = either;
+			either = other;
+			other = tmp;
+		}
+		// "other" is in forward direction of "either" now
+		int dx = col(other) - col(either), dy = row(other) - row(either);
+		for (int i = 0; i < forward.length; ++i) {
+			if (forward[i][0] == dx && forward[i][1] == dy) {
+				return (long) either * forward.length + i;
+			}
+		}
+		return -1;
+	}
+
+	private long requireEdgeBit(int either, int other) {
+		long bit = edgeBit(either, other);
+		if (bit < 0) {
+			throw new IllegalArgumentException("Cells %d and %d are no neighbors".formatted(either, other));
+		}
+		return bit;
+	}
+
+	/**
+	 * Gives direct access to the edge bits, bit <i>i</i> is stored in word <i>i / 64</i> at bit position <i>i % 64</i>.
+	 *
+	 * @return the edge bits
+	 */
+	long[] edgeBits() {
+		return edgeBits;
+	}
+
+	void recountEdges() {
+		numEdges = Arrays.stream(edgeBits).map(Long::bitCount).sum();
+	}
+
+	/**
+	 * @return a new observable grid graph with the edges and cell states of this grid
+	 */
+	public ObservableGridGraph<TraversalState, Integer> toObservableGrid() {
+		var grid = GridFactory.emptyObservableGrid(numCols, numRows, getTopology(), TraversalState.UNVISITED, 0);
+		for (int cell = 0; cell < numCells(); ++cell) {
+			grid.set(cell, get(cell));
+			int col = col(cell), row = row(cell);
+			for (int[] dir : forward) {
+				int neighborCol = col + dir[0], neighborRow = row + dir[1];
+				if (isInside(neighborCol, neighborRow)) {
+					int neighbor = cell(neighborCol, neighborRow);
+					if (adjacent(cell, neighbor)) {
+						grid.addEdge(cell, neighbor);
+					}
+				}
+			}
+		}
+		return grid;
+	}
+}
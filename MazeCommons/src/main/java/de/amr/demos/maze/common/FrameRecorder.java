@@ -0,0 +1,84 @@
+package de.amr.demos.maze.common;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records an animation from a sequence of frame requests, e.g. one request per change of a grid canvas.
+ * <p>
+ * Frame requests pass the (live) source image, e.g. the drawing buffer of a canvas, together with the area that
+ * changed since the previous request. The recorder decides which requests it needs and copies only the changed area
+ * of these.
+ *
+ * @author Armin Reichert
+ */
+public interface FrameRecorder extends AutoCloseable {
+
+	/**
+	 * Asks the recorder for adding the given frame. The frame content is copied only if the request is accepted, so the
+	 * caller may pass the same (live) image with every request.
+	 *
+	 * @param source
+	 *                      the image containing the frame to be added
+	 * @param changedArea
+	 *                      the area of the frame that changed since the previous request or {@code null} if the
+	 *                      complete frame may have changed
+	 * @param always
+	 *                      if {@code true} the request will always be accepted
+	 */
+	void requestFrame(BufferedImage source, Rectangle changedArea, boolean always);
+
+	/**
+	 * Asks the recorder for adding the given frame.
+	 *
+	 * @param source
+	 *                      the image containing the frame to be added
+	 * @param changedArea
+	 *                      the area of the frame that changed since the previous request or {@code null} if the
+	 *                      complete frame may have changed
+	 */
+	default void requestFrame(BufferedImage source, Rectangle changedArea) {
+		requestFrame(source, changedArea, false);
+	}
+
+	/**
+	 * Asks the recorder for adding the given frame.
+	 *
+	 * @param source
+	 *                 the image containing the frame to be added
+	 * @param always
+	 *                 if {@code true} the request will always be accepted
+	 */
+	default void requestFrame(BufferedImage source, boolean always) {
+		requestFrame(source, null, always);
+	}
+
+	/**
+	 * Asks the recorder for adding the given frame.
+	 *
+	 * @param source
+	 *                 the image containing the frame to be added
+	 */
+	default void requestFrame(BufferedImage source) {
+		requestFrame(source, null, false);
+	}
+
+	/**
+	 * @return number of frames written to the file so far
+	 */
+	int getFramesWritten();
+
+	/**
+	 * @return future completed when the file has been completely written after the recording was closed
+	 */
+	default CompletableFuture<Void> getCompletion() {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Stops the recording. The file may be completed asynchronously, see {@link #getCompletion()}.
+	 */
+	@Override
+	void close();
+}
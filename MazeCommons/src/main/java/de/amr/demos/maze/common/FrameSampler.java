@@ -0,0 +1,118 @@
+package de.amr.demos.maze.common;
+
+/**
+ * Decides which frame requests of an animation recording are accepted.
+ * <p>
+ * Frames are sampled either at a fixed scan rate (every n-th request) or adaptively: with a frame budget or a target
+ * duration, the scan rate is recomputed after each accepted frame from the estimated number of remaining requests and
+ * the remaining budget. If the estimate turns out to be too low, it is doubled.
+ *
+ * @author Armin Reichert
+ */
+public class FrameSampler {
+
+	private int scanRate = 1;
+	private int frameBudget;
+	private int targetDurationMillis;
+	private int expectedRequests;
+
+	private int requests;
+	private int nextAcceptedRequest = 1;
+	private int budget;
+	private int estimatedRequests;
+	private int framesAccepted;
+
+	/**
+	 * Sets the scan rate. A scan rate of 5 means that every 5th frame is recorded. Switches off adaptive sampling.
+	 *
+	 * @param scanRate
+	 */
+	public void setScanRate(int scanRate) {
+		if (scanRate < 1) {
+			throw new IllegalArgumentException("Scan rate must be positive but is " + scanRate);
+		}
+		this.scanRate = scanRate;
+		frameBudget = 0;
+		targetDurationMillis = 0;
+	}
+
+	/**
+	 * Adapts the scan rate such that the animation has about the given number of frames.
+	 *
+	 * @param frameBudget
+	 *                           number of frames to record
+	 * @param expectedRequests
+	 *                           estimated number of frame requests, e.g. derived from the grid size, or 0 if unknown
+	 */
+	public void setFrameBudget(int frameBudget, int expectedRequests) {
+		if (frameBudget < 1) {
+			throw new IllegalArgumentException("Frame budget must be positive but is " + frameBudget);
+		}
+		this.frameBudget = frameBudget;
+		this.expectedRequests = expectedRequests;
+		targetDurationMillis = 0;
+	}
+
+	/**
+	 * Adapts the scan rate such that the animation plays about the given time. The frame budget is derived from the
+	 * frame delay when the sampling is started.
+	 *
+	 * @param targetDurationMillis
+	 *                               play time of the animation in milliseconds (without end delay)
+	 * @param expectedRequests
+	 *                               estimated number of frame requests, e.g. derived from the grid size, or 0 if unknown
+	 */
+	public void setTargetDuration(int targetDurationMillis, int expectedRequests) {
+		if (targetDurationMillis < 1) {
+			throw new IllegalArgumentException("Target duration must be positive but is " + targetDurationMillis);
+		}
+		this.targetDurationMillis = targetDurationMillis;
+		this.expectedRequests = expectedRequests;
+		frameBudget = 0;
+	}
+
+	/**
+	 * Starts sampling a new animation.
+	 *
+	 * @param delayMillis
+	 *                      delay between frames in milliseconds, used for computing the budget of a target duration
+	 */
+	public void start(int delayMillis) {
+		requests = 0;
+		nextAcceptedRequest = 1;
+		budget = frameBudget > 0 ? frameBudget
+				: targetDurationMillis > 0 ? Math.max(1, targetDurationMillis / Math.max(10, delayMillis)) : 0;
+		estimatedRequests = expectedRequests > 0 ? expectedRequests : budget;
+		framesAccepted = 0;
+	}
+
+	/**
+	 * Counts a frame request and decides if the frame is recorded.
+	 *
+	 * @param always
+	 *                 if {@code true} the request will always be accepted
+	 * @return if the frame is recorded
+	 */
+	public boolean accept(boolean always) {
+		++requests;
+		if (always || requests >= nextAcceptedRequest) {
+			++framesAccepted;
+			nextAcceptedRequest = requests + currentScanRate();
+			return true;
+		}
+		return false;
+	}
+
+	// number of requests until the next frame is accepted
+	private int currentScanRate() {
+		if (budget == 0) {
+			return scanRate;
+		}
+		while (requests >= estimatedRequests) {
+			estimatedRequests *= 2;
+		}
+		int remainingFrames = Math.max(1, budget - framesAccepted);
+		int remainingRequests = estimatedRequests - requests;
+		return (remainingRequests + remainingFrames - 1) / remainingFrames;
+	}
+}
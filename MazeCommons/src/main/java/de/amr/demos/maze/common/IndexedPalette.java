@@ -0,0 +1,200 @@
+package de.amr.demos.maze.common;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Fixed color palette with at most 256 colors for rendering into {@code TYPE_BYTE_INDEXED} images.
+ * <p>
+ * Mazes are drawn using only a handful of colors, so an indexed image holds the same content as a full-color image
+ * using a quarter of the memory, and image writers like GIF or PNG can store it without any color reduction. Colors not
+ * contained in the palette are mapped to the nearest palette color.
+ * <p>
+ * Instances are not thread-safe because the color lookup table is extended on the fly.
+ *
+ * @author Armin Reichert
+ */
+public class IndexedPalette {
+
+	public static final int MAX_COLORS = 256;
+
+	// open addressing hash table RGB -> palette index, also caches the nearest colors found for unknown RGB values
+	private static final int TABLE_SIZE = 4096;
+	private static final int EMPTY = -1;
+
+	private final int[] rgbs;
+	private final IndexColorModel colorModel;
+	private final int[] tableKeys = new int[TABLE_SIZE];
+	private final byte[] tableValues = new byte[TABLE_SIZE];
+	private int tableEntries;
+
+	/**
+	 * Creates a palette from the colors used in the given image and the given additional colors.
+	 *
+	 * @param image
+	 *                      image, e.g. a canvas showing the initial grid
+	 * @param extraColors
+	 *                      colors not (yet) used in the image, e.g. cell colors of a renderer
+	 * @return the palette or nothing if there are more than {@link #MAX_COLORS} colors
+	 */
+	public static Optional<IndexedPalette> fromImage(BufferedImage image, Color... extraColors) {
+		Set<Integer> colors = new LinkedHashSet<>();
+		for (Color color : extraColors) {
+			colors.add(color.getRGB() & 0xFFFFFF);
+		}
+		int[] row = new int[image.getWidth()];
+		for (int y = 0; y < image.getHeight(); ++y) {
+			image.getRGB(0, y, row.length, 1, row, 0, row.length);
+			for (int rgb : row) {
+				colors.add(rgb & 0xFFFFFF);
+				if (colors.size() > MAX_COLORS) {
+					return Optional.empty();
+				}
+			}
+		}
+		return Optional.of(new IndexedPalette(colors.stream().mapToInt(Integer::intValue).toArray()));
+	}
+
+	public IndexedPalette(Color... colors) {
+		this(Arrays.stream(colors).mapToInt(color -> color.getRGB() & 0xFFFFFF).distinct().toArray());
+	}
+
+	private IndexedPalette(int[] rgbs) {
+		if (rgbs.length == 0 || rgbs.length > MAX_COLORS) {
+			throw new IllegalArgumentException("Palette must have 1 to %d colors but has %d".formatted(MAX_COLORS,
+					rgbs.length));
+		}
+		this.rgbs = rgbs;
+		colorModel = new IndexColorModel(8, rgbs.length, rgbs, 0, false, -1, DataBufferByte.TYPE_BYTE);
+		Arrays.fill(tableKeys, EMPTY);
+		for (int i = 0; i < rgbs.length; ++i) {
+			store(rgbs[i], i);
+		}
+	}
+
+	public int numColors() {
+		return rgbs.length;
+	}
+
+	public IndexColorModel getColorModel() {
+		return colorModel;
+	}
+
+	/**
+	 * @param width
+	 *                 image width
+	 * @param height
+	 *                 image height
+	 * @return new indexed image using this palette
+	 */
+	public BufferedImage createImage(int width, int height) {
+		return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+	}
+
+	/**
+	 * @param rgb
+	 *              RGB value (alpha is ignored)
+	 * @return index of the color or of the nearest palette color
+	 */
+	public int index(int rgb) {
+		rgb &= 0xFFFFFF;
+		int slot = slot(rgb);
+		while (tableKeys[slot] != EMPTY) {
+			if (tableKeys[slot] == rgb) {
+				return tableValues[slot] & 0xFF;
+			}
+			slot = (slot + 1) & (TABLE_SIZE - 1);
+		}
+		int nearest = nearest(rgb);
+		// keep the table at most half full, further unknown colors are searched every time
+		if (tableEntries < TABLE_SIZE / 2) {
+			store(rgb, nearest);
+		}
+		return nearest;
+	}
+
+	/**
+	 * Converts the given area of the source image into the same area of an indexed image using this palette.
+	 *
+	 * @param source
+	 *                 source image
+	 * @param area
+	 *                 area to convert
+	 * @param target
+	 *                 indexed image created by {@link #createImage(int, int)}, at least as large as the source area
+	 */
+	public void convert(BufferedImage source, Rectangle area, BufferedImage target) {
+		byte[] targetPixels = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+		int targetStride = target.getWidth();
+		boolean packedRGB = source.getType() == BufferedImage.TYPE_INT_RGB
+				|| source.getType() == BufferedImage.TYPE_INT_ARGB;
+		int[] row = new int[area.width];
+		int lastRGB = EMPTY, lastIndex = 0;
+		for (int y = area.y; y < area.y + area.height; ++y) {
+			if (packedRGB) {
+				source.getRaster().getDataElements(area.x, y, area.width, 1, row);
+			} else {
+				source.getRGB(area.x, y, area.width, 1, row, 0, area.width);
+			}
+			int offset = y * targetStride + area.x;
+			for (int i = 0; i < area.width; ++i) {
+				int rgb = row[i] & 0xFFFFFF;
+				// neighbor pixels mostly have the same color
+				if (rgb != lastRGB) {
+					lastRGB = rgb;
+					lastIndex = index(rgb);
+				}
+				targetPixels[offset + i] = (byte) lastIndex;
+			}
+		}
+	}
+
+	/**
+	 * @param source
+	 *                 source image
+	 * @return indexed copy of the complete source image
+	 */
+	public BufferedImage convert(BufferedImage source) {
+		BufferedImage target = createImage(source.getWidth(), source.getHeight());
+		convert(source, new Rectangle(0, 0, source.getWidth(), source.getHeight()), target);
+		return target;
+	}
+
+	private void store(int rgb, int index) {
+		int slot = slot(rgb);
+		while (tableKeys[slot] != EMPTY) {
+			if (tableKeys[slot] == rgb) {
+				return;
+			}
+			slot = (slot + 1) & (TABLE_SIZE - 1);
+		}
+		tableKeys[slot] = rgb;
+		tableValues[slot] = (byte) index;
+		++tableEntries;
+	}
+
+	private static int slot(int rgb) {
+		return (rgb * 0x9E3779B9 >>> 20) & (TABLE_SIZE - 1);
+	}
+
+	private int nearest(int rgb) {
+		int r = rgb >> 16 & 0xFF, g = rgb >> 8 & 0xFF, b = rgb & 0xFF;
+		int best = 0, bestDist = Integer.MAX_VALUE;
+		for (int i = 0; i < rgbs.length; ++i) {
+			int dr = r - (rgbs[i] >> 16 & 0xFF), dg = g - (rgbs[i] >> 8 & 0xFF), db = b - (rgbs[i] & 0xFF);
+			int dist = dr * dr + dg * dg + db * db;
+			if (dist < bestDist) {
+				best = i;
+				bestDist = dist;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,286 @@
+package de.amr.demos.maze.common;
+
+import static de.amr.graph.core.api.TraversalState.COMPLETED;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+import de.amr.graph.grid.impl.GridFactory;
+import de.amr.graph.grid.impl.ObservableGridGraph;
+
+/**
+ * Compact binary file format for mazes.
+ * <p>
+ * The file starts with a 16 byte header (big endian):
+ *
+ * <pre>
+ * int   magic number "MAZE"
+ * short format version
+ * byte  topology (4 or 8 neighbors)
+ * byte  reserved
+ * int   number of columns
+ * int   number of rows
+ * </pre>
+ *
+ * followed by the edges, packed as bits. Each cell stores the edges to its neighbors in "forward" direction, 2 bits
+ * (east, south) for 4-neighbor topology and 4 bits (east, south-east, south, south-west) for 8-neighbor topology. Bit
+ * <i>i</i> of the edge data is stored in byte <i>i / 8</i> at bit position <i>i % 8</i>.
+ * <p>
+ * Only the maze structure is stored, not the vertex and edge labels.
+ *
+ * @author Armin Reichert
+ */
+public class MazeFile {
+
+	public static final String EXTENSION = "maze";
+
+	private static final int MAGIC = 0x4D415A45; // "MAZE"
+	private static final short VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	// forward directions as (dx, dy)
+	private static final int[][] FORWARD_4 = { { 1, 0 }, { 0, 1 } };
+	private static final int[][] FORWARD_8 = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 1 } };
+
+	/**
+	 * Header data of a maze file.
+	 */
+	public record Header(int numCols, int numRows, int numNeighbors) {
+
+		public GridTopology topology() {
+			return numNeighbors == 4 ? Grid4Topology.get() : Grid8Topology.get();
+		}
+
+		long numEdgeBytes() {
+			return ((long) numCols * numRows * forwardDirections(numNeighbors).length + 7) / 8;
+		}
+	}
+
+	private MazeFile() {
+	}
+
+	// shared by the maze grid implementations, must not be modified
+	static int[][] forwardDirections(int numNeighbors) {
+		return numNeighbors == 4 ? FORWARD_4 : FORWARD_8;
+	}
+
+	/**
+	 * Saves the given maze.
+	 *
+	 * @param maze
+	 *               maze with 4- or 8-neighbor topology
+	 * @param file
+	 *               path of the maze file
+	 * @throws IOException
+	 *                       if the file could not be written
+	 */
+	public static void save(GridGraph2D<?, ?> maze, Path file) throws IOException {
+		int numNeighbors = maze.getTopology().dirCount();
+		if (numNeighbors != 4 && numNeighbors != 8) {
+			throw new IllegalArgumentException("Unsupported grid topology: " + maze.getTopology());
+		}
+		var header = new Header(maze.numCols(), maze.numRows(), numNeighbors);
+		int[][] forward = forwardDirections(numNeighbors);
+		byte[] edges = new byte[Math.toIntExact(header.numEdgeBytes())];
+		long bit = 0;
+		for (int row = 0; row < maze.numRows(); ++row) {
+			for (int col = 0; col < maze.numCols(); ++col) {
+				int cell = maze.cell(col, row);
+				for (int[] dir : forward) {
+					int neighborCol = col + dir[0], neighborRow = row + dir[1];
+					if (isInside(header, neighborCol, neighborRow)
+							&& maze.adjacent(cell, maze.cell(neighborCol, neighborRow))) {
+						edges[(int) (bit >>> 3)] |= (byte) (1 << (bit & 7));
+					}
+					++bit;
+				}
+			}
+		}
+		try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(new ByteBuffer[] { headerBytes(header), ByteBuffer.wrap(edges) });
+		}
+	}
+
+	/**
+	 * Reads only the header of a maze file.
+	 *
+	 * @param file
+	 *               path of the maze file
+	 * @return the header
+	 * @throws IOException
+	 *                       if the file could not be read or is not a valid maze file
+	 */
+	public static Header readHeader(Path file) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var bytes = ByteBuffer.allocate(HEADER_SIZE);
+			while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+				// read until header is complete or end of file
+			}
+			bytes.flip();
+			return readHeader(bytes, channel.size());
+		}
+	}
+
+	private static Header readHeader(ByteBuffer bytes, long fileSize) throws IOException {
+		if (bytes.remaining() < HEADER_SIZE || bytes.getInt() != MAGIC) {
+			throw new IOException("Not a maze file");
+		}
+		short version = bytes.getShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported maze file version: " + version);
+		}
+		int numNeighbors = bytes.get();
+		bytes.get();
+		var header = new Header(bytes.getInt(), bytes.getInt(), numNeighbors);
+		if (numNeighbors != 4 && numNeighbors != 8) {
+			throw new IOException("Unsupported grid topology: %d neighbors".formatted(numNeighbors));
+		}
+		if (header.numCols() < 1 || header.numRows() < 1) {
+			throw new IOException("Illegal maze size %dx%d".formatted(header.numCols(), header.numRows()));
+		}
+		if (fileSize != HEADER_SIZE + header.numEdgeBytes()) {
+			throw new IOException("Maze file has size %d but should have size %d".formatted(fileSize,
+					HEADER_SIZE + header.numEdgeBytes()));
+		}
+		return header;
+	}
+
+	/**
+	 * Loads a maze. The file is mapped into memory and the edges are added directly from the mapped data. All cells of
+	 * the loaded maze are in state {@link TraversalState#COMPLETED}.
+	 *
+	 * @param file
+	 *               path of the maze file
+	 * @return the maze as an observable grid graph
+	 * @throws IOException
+	 *                       if the file could not be read or is not a valid maze file
+	 */
+	public static ObservableGridGraph<TraversalState, Integer> load(Path file) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			var header = readHeader(bytes, channel.size());
+			var maze = GridFactory.emptyObservableGrid(header.numCols(), header.numRows(), header.topology(), COMPLETED,
+					0);
+			int[][] forward = forwardDirections(header.numNeighbors());
+			long bit = 0;
+			int b = 0;
+			for (int row = 0; row < header.numRows(); ++row) {
+				for (int col = 0; col < header.numCols(); ++col) {
+					int cell = maze.cell(col, row);
+					for (int[] dir : forward) {
+						if ((bit & 7) == 0) {
+							b = bytes.get(HEADER_SIZE + (int) (bit >>> 3));
+						}
+						if ((b & (1 << (bit & 7))) != 0) {
+							int neighborCol = col + dir[0], neighborRow = row + dir[1];
+							if (!isInside(header, neighborCol, neighborRow)) {
+								throw new IOException("Edge leaves the grid at cell (%d,%d)".formatted(col, row));
+							}
+							maze.addEdge(cell, maze.cell(neighborCol, neighborRow));
+						}
+						++bit;
+					}
+				}
+			}
+			return maze;
+		}
+	}
+
+	/**
+	 * Saves the given compact grid. The edge bits of a compact grid have the layout of a maze file, so they are written
+	 * without conversion.
+	 *
+	 * @param maze
+	 *               compact grid
+	 * @param file
+	 *               path of the maze file
+	 * @throws IOException
+	 *                       if the file could not be written
+	 */
+	public static void save(CompactGrid maze, Path file) throws IOException {
+		var header = new Header(maze.numCols(), maze.numRows(), maze.numNeighbors());
+		long[] words = maze.edgeBits();
+		var edges = ByteBuffer.allocate(words.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+		edges.asLongBuffer().put(words);
+		edges.limit(Math.toIntExact(header.numEdgeBytes()));
+		try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(new ByteBuffer[] { headerBytes(header), edges });
+		}
+	}
+
+	/**
+	 * Loads a maze into a compact grid. The edge bits are copied from the mapped file without conversion. All cells of
+	 * the loaded maze are in state {@link TraversalState#COMPLETED}.
+	 *
+	 * @param file
+	 *               path of the maze file
+	 * @return the maze as compact grid
+	 * @throws IOException
+	 *                       if the file could not be read or is not a valid maze file
+	 */
+	public static CompactGrid loadCompact(Path file) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			var header = readHeader(bytes, channel.size());
+			var maze = new CompactGrid(header.numCols(), header.numRows(), header.numNeighbors());
+			long[] words = maze.edgeBits();
+			var edges = bytes.slice(HEADER_SIZE, Math.toIntExact(header.numEdgeBytes())).order(ByteOrder.LITTLE_ENDIAN);
+			int numFullWords = edges.remaining() / 8;
+			edges.asLongBuffer().get(words, 0, numFullWords);
+			for (int i = numFullWords * 8; i < edges.limit(); ++i) {
+				words[numFullWords] |= (edges.get(i) & 0xFFL) << (8 * (i - numFullWords * 8));
+			}
+			checkBorderEdges(header, words);
+			maze.recountEdges();
+			maze.setAll(COMPLETED);
+			return maze;
+		}
+	}
+
+	// only cells at the grid border can have edge bits leading outside
+	private static void checkBorderEdges(Header header, long[] words) throws IOException {
+		int lastCol = header.numCols() - 1, lastRow = header.numRows() - 1;
+		for (int row = 0; row < lastRow; ++row) {
+			checkCellEdges(header, words, 0, row);
+			checkCellEdges(header, words, lastCol, row);
+		}
+		for (int col = 0; col <= lastCol; ++col) {
+			checkCellEdges(header, words, col, lastRow);
+		}
+	}
+
+	private static void checkCellEdges(Header header, long[] words, int col, int row) throws IOException {
+		int[][] forward = forwardDirections(header.numNeighbors());
+		for (int i = 0; i < forward.length; ++i) {
+			long bit = ((long) row * header.numCols() + col) * forward.length + i;
+			if ((words[(int) (bit >>> 6)] & (1L << bit)) != 0
+					&& !isInside(header, col + forward[i][0], row + forward[i][1])) {
+				throw new IOException("Edge leaves the grid at cell (%d,%d)".formatted(col, row));
+			}
+		}
+	}
+
+	static ByteBuffer headerBytes(Header header) {
+		var bytes = ByteBuffer.allocate(HEADER_SIZE);
+		bytes.putInt(MAGIC).putShort(VERSION).put((byte) header.numNeighbors()).put((byte) 0);
+		bytes.putInt(header.numCols()).putInt(header.numRows()).flip();
+		return bytes;
+	}
+
+	private static boolean isInside(Header header, int col, int row) {
+		return 0 <= col && col < header.numCols() && 0 <= row && row < header.numRows();
+	}
+}
@@ -0,0 +1,78 @@
+package de.amr.demos.maze.common;
+
+import de.amr.graph.core.api.TraversalState;
+
+/**
+ * Grid maze with 4- or 8-neighbor topology using the edge layout of a {@link MazeFile}: each cell stores the edges to
+ * its neighbors in "forward" direction, east (0) and south (1) for 4-neighbor topology, east (0), south-east (1), south
+ * (2) and south-west (3) for 8-neighbor topology.
+ * <p>
+ * Cells are addressed by column and row so grids with more than {@link Integer#MAX_VALUE} cells can be used.
+ *
+ * @author Armin Reichert
+ */
+public interface MazeGrid {
+
+	int numCols();
+
+	int numRows();
+
+	/**
+	 * @return 4 or 8
+	 */
+	int numNeighbors();
+
+	/**
+	 * @return number of edges, a {@code long} because grids can have more than {@link Integer#MAX_VALUE} cells
+	 */
+	long edgeCount();
+
+	/**
+	 * @return number of forward directions, 2 for 4-neighbor topology and 4 for 8-neighbor topology
+	 */
+	default int numForwardDirections() {
+		return numNeighbors() / 2;
+	}
+
+	/**
+	 * @param dir forward direction
+	 * @return column difference to the neighbor in this direction
+	 */
+	default int dx(int dir) {
+		return MazeFile.forwardDirections(numNeighbors())[dir][0];
+	}
+
+	/**
+	 * @param dir forward direction
+	 * @return row difference to the neighbor in this direction
+	 */
+	default int dy(int dir) {
+		return MazeFile.forwardDirections(numNeighbors())[dir][1];
+	}
+
+	default boolean isInside(int col, int row) {
+		return 0 <= col && col < numCols() && 0 <= row && row < numRows();
+	}
+
+	/**
+	 * @param col column
+	 * @param row row
+	 * @param dir forward direction
+	 * @return if the cell is connected to its neighbor in the given direction
+	 */
+	boolean hasEdge(int col, int row, int dir);
+
+	/**
+	 * Adds or removes the edge from the cell to its neighbor in the given direction.
+	 * 
+	 * @param col  column
+	 * @param row  row
+	 * @param dir  forward direction
+	 * @param edge if the edge is added or removed
+	 */
+	void setEdge(int col, int row, int dir, boolean edge);
+
+	TraversalState getState(int col, int row);
+
+	void setState(int col, int row, TraversalState state);
+}
@@ -0,0 +1,397 @@
+package de.amr.demos.maze.common;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import de.amr.graph.core.api.Edge;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.core.api.UndirectedEdge;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridPosition;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+
+/**
+ * Implements the {@link GridGraph2D} interface of the graph library on top of the column/row operations of a
+ * {@link MazeGrid}, so maze generators and path finders of the library can run on grids storing only primitive data.
+ * <p>
+ * Cells are numbered row by row like in the library grids and directions are the directions of the grid topology.
+ * Edges have no labels. Grids with more than {@link Integer#MAX_VALUE} cells cannot be used as grid graph.
+ * <p>
+ * {@link #of(MazeGrid)} creates a view of any maze grid, e.g. of an {@link OffHeapGrid}. Subclasses like
+ * {@link CompactGrid} can replace the generic implementation by faster methods.
+ *
+ * @author Armin Reichert
+ */
+public abstract class MazeGridGraph implements MazeGrid, GridGraph2D<TraversalState, Integer> {
+
+	/**
+	 * @param maze a maze grid with at most {@link Integer#MAX_VALUE} cells
+	 * @return grid graph reading and writing the given maze grid
+	 */
+	public static MazeGridGraph of(MazeGrid maze) {
+		return maze instanceof MazeGridGraph graph ? graph : new View(maze);
+	}
+
+	private Function<Integer, TraversalState> fnDefaultVertexLabel = cell -> TraversalState.UNVISITED;
+
+	private static class View extends MazeGridGraph {
+
+		private final MazeGrid maze;
+
+		View(MazeGrid maze) {
+			if ((long) maze.numCols() * maze.numRows() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Grid of size %dx%d has too many cells for a grid graph"
+						.formatted(maze.numCols(), maze.numRows()));
+			}
+			this.maze = maze;
+		}
+
+		@Override
+		public int numCols() {
+			return maze.numCols();
+		}
+
+		@Override
+		public int numRows() {
+			return maze.numRows();
+		}
+
+		@Override
+		public int numNeighbors() {
+			return maze.numNeighbors();
+		}
+
+		@Override
+		public long edgeCount() {
+			return maze.edgeCount();
+		}
+
+		@Override
+		public boolean hasEdge(int col, int row, int dir) {
+			return maze.hasEdge(col, row, dir);
+		}
+
+		@Override
+		public void setEdge(int col, int row, int dir, boolean edge) {
+			maze.setEdge(col, row, dir, edge);
+		}
+
+		@Override
+		public TraversalState getState(int col, int row) {
+			return maze.getState(col, row);
+		}
+
+		@Override
+		public void setState(int col, int row, TraversalState state) {
+			maze.setState(col, row, state);
+		}
+	}
+
+	// Graph
+
+	@Override
+	public IntStream vertices() {
+		return IntStream.range(0, numVertices());
+	}
+
+	@Override
+	public int numVertices() {
+		return numCols() * numRows();
+	}
+
+	@Override
+	public Stream<Edge> edges() {
+		int numDirs = numForwardDirections();
+		return vertices().boxed().flatMap(cell -> {
+			int col = col(cell), row = row(cell);
+			return IntStream.range(0, numDirs)
+					.filter(dir -> isInside(col + dx(dir), row + dy(dir)) && hasEdge(col, row, dir))
+					.mapToObj(dir -> new UndirectedEdge(cell, cell(col + dx(dir), row + dy(dir))));
+		});
+	}
+
+	@Override
+	public int numEdges() {
+		return Math.toIntExact(edgeCount());
+	}
+
+	@Override
+	public TraversalState get(int cell) {
+		return getState(col(cell), row(cell));
+	}
+
+	@Override
+	public void set(int cell, TraversalState state) {
+		setState(col(cell), row(cell), state);
+	}
+
+	@Override
+	public void clearVertexLabels() {
+		vertices().forEach(cell -> set(cell, fnDefaultVertexLabel.apply(cell)));
+	}
+
+	/**
+	 * Every cell stores its state, so the default label is assigned to all cells.
+	 */
+	@Override
+	public void setDefaultVertexLabel(Function<Integer, TraversalState> fnDefaultLabel) {
+		fnDefaultVertexLabel = fnDefaultLabel;
+		clearVertexLabels();
+	}
+
+	public Function<Integer, TraversalState> getDefaultVertexLabel() {
+		return fnDefaultVertexLabel;
+	}
+
+	public void addVertex(int cell) {
+		throw new UnsupportedOperationException("Grid graphs have a fixed set of vertices");
+	}
+
+	public void removeVertex(int cell) {
+		throw new UnsupportedOperationException("Grid graphs have a fixed set of vertices");
+	}
+
+	@Override
+	public IntStream adj(int cell) {
+		return neighbors(cell).filter(neighbor -> adjacent(cell, neighbor));
+	}
+
+	@Override
+	public boolean adjacent(int either, int other) {
+		int col = col(either), row = row(either), dx = col(other) - col, dy = row(other) - row;
+		int dir = forwardDirection(dx, dy);
+		if (dir != -1) {
+			return hasEdge(col, row, dir);
+		}
+		dir = forwardDirection(-dx, -dy);
+		return dir != -1 && hasEdge(col + dx, row + dy, dir);
+	}
+
+	public int degree(int cell) {
+		return (int) adj(cell).count();
+	}
+
+	public boolean isDirected() {
+		return false;
+	}
+
+	public Optional<Edge> edge(int either, int other) {
+		return adjacent(either, other) ? Optional.of(new UndirectedEdge(either, other)) : Optional.empty();
+	}
+
+	@Override
+	public void addEdge(int either, int other) {
+		setEdge(either, other, true);
+	}
+
+	/**
+	 * Edges have no labels, so the label is ignored.
+	 */
+	public void addEdge(int either, int other, Integer label) {
+		addEdge(either, other);
+	}
+
+	@Override
+	public void removeEdge(int either, int other) {
+		setEdge(either, other, false);
+	}
+
+	@Override
+	public void removeEdges() {
+		forEachForwardNeighbor((col, row, dir) -> setEdge(col, row, dir, false));
+	}
+
+	public Integer getEdgeLabel(int either, int other) {
+		return null;
+	}
+
+	public void setEdgeLabel(int either, int other, Integer label) {
+		throw new UnsupportedOperationException("Edges of a maze grid have no labels");
+	}
+
+	public void clearEdgeLabels() {
+		// no edge labels
+	}
+
+	public void setDefaultEdgeLabel(BiFunction<Integer, Integer, Integer> fnDefaultLabel) {
+		throw new UnsupportedOperationException("Edges of a maze grid have no labels");
+	}
+
+	public BiFunction<Integer, Integer, Integer> getDefaultEdgeLabel() {
+		return (either, other) -> null;
+	}
+
+	// GridGraph2D
+
+	@Override
+	public int cell(int col, int row) {
+		return row * numCols() + col;
+	}
+
+	@Override
+	public int cell(GridPosition position) {
+		int right = numCols() - 1, bottom = numRows() - 1;
+		return switch (position) {
+		case TOP_LEFT -> cell(0, 0);
+		case TOP_RIGHT -> cell(right, 0);
+		case CENTER -> cell(right / 2, bottom / 2);
+		case BOTTOM_LEFT -> cell(0, bottom);
+		case BOTTOM_RIGHT -> cell(right, bottom);
+		default -> throw new IllegalArgumentException("Unsupported grid position: " + position);
+		};
+	}
+
+	@Override
+	public int col(int cell) {
+		return cell % numCols();
+	}
+
+	@Override
+	public int row(int cell) {
+		return cell / numCols();
+	}
+
+	public boolean isValidCol(int col) {
+		return 0 <= col && col < numCols();
+	}
+
+	public boolean isValidRow(int row) {
+		return 0 <= row && row < numRows();
+	}
+
+	@Override
+	public GridTopology getTopology() {
+		return numNeighbors() == 4 ? Grid4Topology.get() : Grid8Topology.get();
+	}
+
+	@Override
+	public IntStream neighbors(int cell) {
+		return IntStream.range(0, numNeighbors()).map(dir -> neighborCell(cell, dir)).filter(neighbor -> neighbor != -1);
+	}
+
+	/**
+	 * @param cell a cell
+	 * @param dir  direction of the grid topology
+	 * @return the neighbor in the given direction, empty if it is outside of the grid
+	 */
+	public OptionalInt neighbor(int cell, int dir) {
+		int neighbor = neighborCell(cell, dir);
+		return neighbor != -1 ? OptionalInt.of(neighbor) : OptionalInt.empty();
+	}
+
+	public boolean areNeighbors(int either, int other) {
+		return direction(either, other).isPresent();
+	}
+
+	/**
+	 * @param either a cell
+	 * @param other  another cell
+	 * @return the direction of the grid topology pointing from the first to the second cell, empty if they are no
+	 *         neighbors
+	 */
+	public OptionalInt direction(int either, int other) {
+		int dx = col(other) - col(either), dy = row(other) - row(either);
+		GridTopology topology = getTopology();
+		for (int dir = 0; dir < topology.dirCount(); ++dir) {
+			if (topology.dx(dir) == dx && topology.dy(dir) == dy) {
+				return OptionalInt.of(dir);
+			}
+		}
+		return OptionalInt.empty();
+	}
+
+	public boolean isConnected(int cell, int dir) {
+		int neighbor = neighborCell(cell, dir);
+		return neighbor != -1 && adjacent(cell, neighbor);
+	}
+
+	public void connect(int cell, int dir) {
+		setEdge(cell, requireNeighbor(cell, dir), true);
+	}
+
+	public void disconnect(int cell, int dir) {
+		setEdge(cell, requireNeighbor(cell, dir), false);
+	}
+
+	/**
+	 * @return if all neighbor cells are connected
+	 */
+	@Override
+	public boolean isFull() {
+		long numCols = numCols(), numRows = numRows();
+		long fullEdgeCount = numNeighbors() == 4 ? 2 * numCols * numRows - numCols - numRows
+				: 4 * numCols * numRows - 3 * numCols - 3 * numRows + 2;
+		return edgeCount() == fullEdgeCount;
+	}
+
+	/**
+	 * Adds all edges between neighbor cells.
+	 */
+	@Override
+	public void fill() {
+		forEachForwardNeighbor((col, row, dir) -> setEdge(col, row, dir, true));
+	}
+
+	@FunctionalInterface
+	private interface ForwardNeighborAction {
+
+		void accept(int col, int row, int dir);
+	}
+
+	private void forEachForwardNeighbor(ForwardNeighborAction action) {
+		for (int row = 0; row < numRows(); ++row) {
+			for (int col = 0; col < numCols(); ++col) {
+				for (int dir = 0; dir < numForwardDirections(); ++dir) {
+					if (isInside(col + dx(dir), row + dy(dir))) {
+						action.accept(col, row, dir);
+					}
+				}
+			}
+		}
+	}
+
+	// returns the forward direction with the given column and row differences or -1
+	private int forwardDirection(int dx, int dy) {
+		for (int dir = 0; dir < numForwardDirections(); ++dir) {
+			if (dx(dir) == dx && dy(dir) == dy) {
+				return dir;
+			}
+		}
+		return -1;
+	}
+
+	private void setEdge(int either, int other, boolean edge) {
+		int col = col(either), row = row(either), dx = col(other) - col, dy = row(other) - row;
+		int dir = forwardDirection(dx, dy);
+		if (dir != -1) {
+			setEdge(col, row, dir, edge);
+			return;
+		}
+		dir = forwardDirection(-dx, -dy);
+		if (dir == -1) {
+			throw new IllegalArgumentException("Cells %d and %d are no neighbors".formatted(either, other));
+		}
+		setEdge(col + dx, row + dy, dir, edge);
+	}
+
+	// returns the neighbor in the given topology direction or -1 if it is outside of the grid
+	private int neighborCell(int cell, int dir) {
+		GridTopology topology = getTopology();
+		int col = col(cell) + topology.dx(dir), row = row(cell) + topology.dy(dir);
+		return isInside(col, row) ? cell(col, row) : -1;
+	}
+
+	private int requireNeighbor(int cell, int dir) {
+		int neighbor = neighborCell(cell, dir);
+		if (neighbor == -1) {
+			throw new IllegalArgumentException("Cell %d has no neighbor in direction %d".formatted(cell, dir));
+		}
+		return neighbor;
+	}
+}
@@ -0,0 +1,252 @@
+package de.amr.demos.maze.common;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.pathfinder.api.Path;
+import de.amr.graph.pathfinder.impl.BreadthFirstSearch;
+
+/**
+ * Writes a maze as SVG vector image. The file size only depends on the maze structure, not on the cell size, and the
+ * image can be scaled without loss, e.g. for printing a poster.
+ * <p>
+ * The maze is drawn like by a {@link de.amr.graph.grid.ui.rendering.WallPassageGridRenderer}: the background shows the
+ * walls and the passages are lines of the passage width through the cell centers. Passages are streamed row by row
+ * and column by column directly from the grid to the file, consecutive passages in the same direction are merged into
+ * one line segment. Apart from the optional solution path, no memory depending on the grid size is used. Only grids
+ * with 4-neighbor topology are supported.
+ * <p>
+ * The image uses cell coordinates (the center of cell (col, row) is at (col, row)), its width and height are given in
+ * pixels according to the cell size. If the file name ends with ".svgz", the file is GZIP compressed.
+ *
+ * @author Armin Reichert
+ */
+public class MazeSvgWriter {
+
+	public static final String EXTENSION = "svg";
+	public static final String COMPRESSED_EXTENSION = "svgz";
+
+	private final GridGraph2D<?, ?> grid;
+	private final int cellSize;
+	private final int passageWidth;
+	private final Color wallColor;
+	private final Color passageColor;
+	private Color solutionColor = Color.RED;
+	private int solutionSource = -1;
+	private int solutionTarget = -1;
+
+	/**
+	 * @param grid
+	 *                       the maze
+	 * @param cellSize
+	 *                       cell size in pixels
+	 * @param passageWidth
+	 *                       passage width in pixels
+	 * @param wallColor
+	 *                       wall (background) color
+	 * @param passageColor
+	 *                       passage color
+	 */
+	public MazeSvgWriter(GridGraph2D<?, ?> grid, int cellSize, int passageWidth, Color wallColor, Color passageColor) {
+		if (grid.getTopology().dirCount() != 4) {
+			throw new IllegalArgumentException("Only grids with 4-neighbor topology are supported");
+		}
+		if (passageWidth < 1 || passageWidth > cellSize) {
+			throw new IllegalArgumentException("Illegal passage width %d for cell size %d".formatted(passageWidth,
+					cellSize));
+		}
+		this.grid = grid;
+		this.cellSize = cellSize;
+		this.passageWidth = passageWidth;
+		this.wallColor = wallColor;
+		this.passageColor = passageColor;
+	}
+
+	/**
+	 * Draws the path between the given cells, found by a {@link BreadthFirstSearch}, over the maze.
+	 *
+	 * @param source
+	 *                 path source cell
+	 * @param target
+	 *                 path target cell
+	 */
+	public void setSolution(int source, int target) {
+		solutionSource = source;
+		solutionTarget = target;
+	}
+
+	public void setSolutionColor(Color solutionColor) {
+		this.solutionColor = solutionColor;
+	}
+
+	public int getImageWidth() {
+		return Math.multiplyExact(grid.numCols(), cellSize);
+	}
+
+	public int getImageHeight() {
+		return Math.multiplyExact(grid.numRows(), cellSize);
+	}
+
+	/**
+	 * Writes the maze image to the given file.
+	 *
+	 * @param file
+	 *               SVG file, compressed if the file name ends with ".svgz"
+	 * @throws IOException
+	 *                       if writing fails
+	 */
+	public void write(File file) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		if (file.getName().endsWith("." + COMPRESSED_EXTENSION)) {
+			out = new GZIPOutputStream(out, 1 << 16);
+		}
+		try (Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+			write(w);
+		}
+	}
+
+	/**
+	 * Writes the maze image to the given writer. The writer is not closed.
+	 *
+	 * @param w
+	 *            writer
+	 * @throws IOException
+	 *                       if writing fails
+	 */
+	public void write(Writer w) throws IOException {
+		int numCols = grid.numCols(), numRows = grid.numRows();
+		w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		w.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"-0.5 -0.5 %d %d\">\n"
+				.formatted(getImageWidth(), getImageHeight(), numCols, numRows));
+		w.write("<rect x=\"-0.5\" y=\"-0.5\" width=\"%d\" height=\"%d\" fill=\"%s\"/>\n".formatted(numCols, numRows,
+				rgb(wallColor)));
+		w.write("<path fill=\"none\" stroke=\"%s\" stroke-width=\"%s\" stroke-linecap=\"square\" d=\"\n"
+				.formatted(rgb(passageColor), cellUnits(passageWidth)));
+		for (int row = 0; row < numRows; ++row) {
+			writeHorizontalRuns(w, row);
+		}
+		for (int col = 0; col < numCols; ++col) {
+			writeVerticalRuns(w, col);
+		}
+		w.write("\"/>\n");
+		if (solutionSource != -1) {
+			writeSolution(w);
+		}
+		w.write("</svg>\n");
+	}
+
+	/*
+	 * Writes one line per run of horizontal passages. Cells without any passage become a zero-length line which is drawn
+	 * as a square because of the square line cap.
+	 */
+	private void writeHorizontalRuns(Writer w, int row) throws IOException {
+		int numCols = grid.numCols();
+		int penX = -1;
+		for (int col = 0; col < numCols;) {
+			int start = col;
+			while (col + 1 < numCols && grid.adjacent(grid.cell(col, row), grid.cell(col + 1, row))) {
+				++col;
+			}
+			if (col > start || isIsolated(col, row)) {
+				if (penX == -1) {
+					w.write("M%d %dh%d".formatted(start, row, col - start));
+				} else {
+					w.write("m%d 0h%d".formatted(start - penX, col - start));
+				}
+				penX = col;
+			}
+			++col;
+		}
+		if (penX != -1) {
+			w.write('\n');
+		}
+	}
+
+	private void writeVerticalRuns(Writer w, int col) throws IOException {
+		int numRows = grid.numRows();
+		int penY = -1;
+		for (int row = 0; row < numRows;) {
+			int start = row;
+			while (row + 1 < numRows && grid.adjacent(grid.cell(col, row), grid.cell(col, row + 1))) {
+				++row;
+			}
+			if (row > start) {
+				if (penY == -1) {
+					w.write("M%d %dv%d".formatted(col, start, row - start));
+				} else {
+					w.write("m0 %dv%d".formatted(start - penY, row - start));
+				}
+				penY = row;
+			}
+			++row;
+		}
+		if (penY != -1) {
+			w.write('\n');
+		}
+	}
+
+	private boolean isIsolated(int col, int row) {
+		int cell = grid.cell(col, row);
+		return (col == 0 || !grid.adjacent(cell, grid.cell(col - 1, row)))
+				&& (col + 1 == grid.numCols() || !grid.adjacent(cell, grid.cell(col + 1, row)))
+				&& (row == 0 || !grid.adjacent(cell, grid.cell(col, row - 1)))
+				&& (row + 1 == grid.numRows() || !grid.adjacent(cell, grid.cell(col, row + 1)));
+	}
+
+	// straight parts of the path become one line segment
+	private void writeSolution(Writer w) throws IOException {
+		Path path = new BreadthFirstSearch(grid).findPath(solutionSource, solutionTarget);
+		if (path == null) {
+			return;
+		}
+		w.write("<path fill=\"none\" stroke=\"%s\" stroke-width=\"%s\" stroke-linecap=\"round\" stroke-linejoin=\"round\" d=\""
+				.formatted(rgb(solutionColor), cellUnits(Math.max(1, passageWidth / 2))));
+		int prevCol = -1, prevRow = -1, dx = 0, dy = 0, length = 0;
+		for (int cell : path) {
+			int col = grid.col(cell), row = grid.row(cell);
+			if (prevCol == -1) {
+				w.write("M%d %d".formatted(col, row));
+			} else {
+				int stepX = col - prevCol, stepY = row - prevRow;
+				if (length > 0 && (stepX != dx || stepY != dy)) {
+					writeSegment(w, dx, dy, length);
+					length = 0;
+				}
+				dx = stepX;
+				dy = stepY;
+				++length;
+			}
+			prevCol = col;
+			prevRow = row;
+		}
+		if (length > 0) {
+			writeSegment(w, dx, dy, length);
+		} else {
+			w.write("h0");
+		}
+		w.write("\"/>\n");
+	}
+
+	private static void writeSegment(Writer w, int dx, int dy, int length) throws IOException {
+		w.write(dy == 0 ? "h%d".formatted(dx * length) : "v%d".formatted(dy * length));
+	}
+
+	private String cellUnits(int pixels) {
+		return String.format(Locale.ROOT, "%.4f", (double) pixels / cellSize).replaceAll("\\.?0+$", "");
+	}
+
+	private static String rgb(Color color) {
+		return "#%06x".formatted(color.getRGB() & 0xFFFFFF);
+	}
+}
@@ -0,0 +1,182 @@
+package de.amr.demos.maze.common;
+
+import de.amr.graph.core.api.ObservableGraph;
+import de.amr.graph.event.EdgeEvent;
+import de.amr.graph.event.GraphObserver;
+import de.amr.graph.event.VertexEvent;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridTopology;
+
+/**
+ * Checks if a grid graph is a maze, that is a spanning tree of the grid.
+ * <p>
+ * The check uses a union-find structure over the cells: a graph is a spanning tree if none of its edges connects two
+ * cells that are already connected and all cells end up in one component. {@link #verify(GridGraph2D)} checks a grid
+ * in a single pass over its cells.
+ * <p>
+ * A verifier instance can also be registered as observer of an initially empty grid to check the edges while they
+ * are added by a generator. Then {@link #result()} is available without another pass. If an edge is removed, the
+ * union-find structure becomes useless and {@link #result()} falls back to a complete pass.
+ *
+ * @param <V> vertex label type
+ * @param <E> edge label type
+ * @author Armin Reichert
+ */
+public class MazeVerifier<V, E> implements GraphObserver<V, E> {
+
+	/**
+	 * Result of a verification.
+	 *
+	 * @param numVertices   number of vertices
+	 * @param numEdges      number of edges
+	 * @param numComponents number of connected components
+	 * @param numCycles     number of edges closing a cycle
+	 * @param nanos         time needed by the verification, for incremental verification only the time of the final
+	 *                      check
+	 */
+	public record Result(int numVertices, int numEdges, int numComponents, int numCycles, long nanos) {
+
+		public boolean isMaze() {
+			return numComponents == 1 && numCycles == 0;
+		}
+
+		public double millis() {
+			return nanos / 1_000_000.0;
+		}
+	}
+
+	/**
+	 * Verifies the given grid in one pass over its cells.
+	 *
+	 * @param grid a grid graph
+	 * @return the verification result
+	 */
+	public static Result verify(GridGraph2D<?, ?> grid) {
+		long start = System.nanoTime();
+		var verifier = new MazeVerifier<>(grid);
+		verifier.addAllEdges();
+		return verifier.createResult(start);
+	}
+
+	private final GridGraph2D<?, ?> grid;
+	private final int[] parent;
+	private final int[] size;
+	private int numEdges;
+	private int numComponents;
+	private int numCycles;
+	private boolean valid;
+
+	/**
+	 * Creates a verifier for incremental verification of the given grid.
+	 *
+	 * @param grid a grid graph, must not contain any edges yet for incremental verification
+	 */
+	public MazeVerifier(GridGraph2D<?, ?> grid) {
+		this.grid = grid;
+		parent = new int[grid.numVertices()];
+		size = new int[grid.numVertices()];
+		reset();
+		valid = grid.numEdges() == 0;
+	}
+
+	private void reset() {
+		for (int cell = 0; cell < parent.length; ++cell) {
+			parent[cell] = cell;
+			size[cell] = 1;
+		}
+		numEdges = 0;
+		numComponents = parent.length;
+		numCycles = 0;
+	}
+
+	/**
+	 * @return the verification result, if the incremental verification is not possible anymore, the grid is verified
+	 *         completely
+	 */
+	public Result result() {
+		long start = System.nanoTime();
+		if (!valid) {
+			reset();
+			addAllEdges();
+		}
+		return createResult(start);
+	}
+
+	private Result createResult(long start) {
+		return new Result(parent.length, numEdges, numComponents, numCycles, System.nanoTime() - start);
+	}
+
+	private void addAllEdges() {
+		GridTopology topology = grid.getTopology();
+		int numCols = grid.numCols(), numRows = grid.numRows();
+		for (int row = 0; row < numRows; ++row) {
+			for (int col = 0; col < numCols; ++col) {
+				int cell = grid.cell(col, row);
+				for (int dir = 0; dir < topology.dirCount(); ++dir) {
+					int dx = topology.dx(dir), dy = topology.dy(dir);
+					// each edge only once, in forward direction
+					if (dy < 0 || dy == 0 && dx < 0) {
+						continue;
+					}
+					int neighborCol = col + dx, neighborRow = row + dy;
+					if (0 <= neighborCol && neighborCol < numCols && neighborRow < numRows) {
+						int neighbor = grid.cell(neighborCol, neighborRow);
+						if (grid.adjacent(cell, neighbor)) {
+							addEdge(cell, neighbor);
+						}
+					}
+				}
+			}
+		}
+		valid = true;
+	}
+
+	private void addEdge(int either, int other) {
+		++numEdges;
+		int eitherRoot = find(either), otherRoot = find(other);
+		if (eitherRoot == otherRoot) {
+			++numCycles;
+		} else if (size[eitherRoot] < size[otherRoot]) {
+			parent[eitherRoot] = otherRoot;
+			size[otherRoot] += size[eitherRoot];
+			--numComponents;
+		} else {
+			parent[otherRoot] = eitherRoot;
+			size[eitherRoot] += size[otherRoot];
+			--numComponents;
+		}
+	}
+
+	private int find(int cell) {
+		while (parent[cell] != cell) {
+			parent[cell] = parent[parent[cell]]; // path halving
+			cell = parent[cell];
+		}
+		return cell;
+	}
+
+	@Override
+	public void edgeAdded(EdgeEvent<V, E> event) {
+		if (valid) {
+			addEdge(event.getEither(), event.getOther());
+		}
+	}
+
+	@Override
+	public void edgeRemoved(EdgeEvent<V, E> event) {
+		valid = false;
+	}
+
+	@Override
+	public void edgeChanged(EdgeEvent<V, E> event) {
+	}
+
+	@Override
+	public void vertexChanged(VertexEvent<V, E> event) {
+	}
+
+	@Override
+	public void graphChanged(ObservableGraph<V, E> graph) {
+		valid = false;
+	}
+}
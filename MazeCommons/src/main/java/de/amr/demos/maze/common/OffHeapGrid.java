@@ -0,0 +1,284 @@
+package de.amr.demos.maze.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import de.amr.graph.core.api.TraversalState;
+
+/**
+ * Maze grid keeping its data outside of the Java heap, so even mazes with billions of cells do not affect the garbage
+ * collector.
+ * <p>
+ * The edge bits are either stored in direct memory or in a memory-mapped {@link MazeFile}. In the latter case, the
+ * maze file itself is the storage: changes are written to the file by the operating system and opening a maze file
+ * does not read anything. The cell states are stored in direct memory, one byte per cell, which is only allocated
+ * when the first state is set. Until then, all cells have the initial state.
+ * <p>
+ * Buffers are limited to 2 GB, so the data is split into pages of 1 GB.
+ * <p>
+ * The maze generators and path finders of the graph library can use the grid through {@link #asGridGraph()}. Their
+ * own data per cell is still on the heap, only the grid data stays outside. Instances are not thread-safe.
+ *
+ * @author Armin Reichert
+ */
+public class OffHeapGrid implements MazeGrid, AutoCloseable {
+
+	private static final int PAGE_SHIFT = 30;
+	private static final long PAGE_SIZE = 1L << PAGE_SHIFT;
+	private static final TraversalState[] STATES = TraversalState.values();
+
+	/**
+	 * Creates an empty grid in direct memory.
+	 *
+	 * @param numCols      number of columns
+	 * @param numRows      number of rows
+	 * @param numNeighbors 4 or 8
+	 * @return new grid with all cells in state {@link TraversalState#UNVISITED}
+	 */
+	public static OffHeapGrid allocate(int numCols, int numRows, int numNeighbors) {
+		var header = new MazeFile.Header(numCols, numRows, numNeighbors);
+		return new OffHeapGrid(header, allocatePages(header.numEdgeBytes()), null, TraversalState.UNVISITED, 0);
+	}
+
+	/**
+	 * Creates an empty maze file and maps it into memory.
+	 *
+	 * @param file         path of the maze file, an existing file is overwritten
+	 * @param numCols      number of columns
+	 * @param numRows      number of rows
+	 * @param numNeighbors 4 or 8
+	 * @return new grid backed by the file with all cells in state {@link TraversalState#UNVISITED}
+	 * @throws IOException if the file could not be created
+	 */
+	public static OffHeapGrid create(Path file, int numCols, int numRows, int numNeighbors) throws IOException {
+		var header = new MazeFile.Header(numCols, numRows, numNeighbors);
+		var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			channel.write(MazeFile.headerBytes(header));
+			// extends the file to its final size, the edge bits are all zero
+			channel.write(ByteBuffer.wrap(new byte[1]), MazeFile.HEADER_SIZE + header.numEdgeBytes() - 1);
+			return new OffHeapGrid(header, mapPages(channel, MapMode.READ_WRITE, header.numEdgeBytes()), channel,
+					TraversalState.UNVISITED, 0);
+		} catch (IOException | RuntimeException x) {
+			channel.close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Maps an existing maze file into memory.
+	 *
+	 * @param file     path of the maze file
+	 * @param writable if changes of the grid are written to the file
+	 * @return grid backed by the file with all cells in state {@link TraversalState#COMPLETED}
+	 * @throws IOException if the file could not be opened or is not a valid maze file
+	 */
+	public static OffHeapGrid open(Path file, boolean writable) throws IOException {
+		var channel = writable ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			var header = MazeFile.readHeader(file);
+			var pages = mapPages(channel, writable ? MapMode.READ_WRITE : MapMode.READ_ONLY, header.numEdgeBytes());
+			var grid = new OffHeapGrid(header, pages, channel, TraversalState.COMPLETED, -1);
+			grid.checkBorderEdges();
+			grid.numEdges = grid.countEdges();
+			return grid;
+		} catch (IOException | RuntimeException x) {
+			channel.close();
+			throw x;
+		}
+	}
+
+	private static ByteBuffer[] allocatePages(long size) {
+		var pages = new ByteBuffer[numPages(size)];
+		for (int i = 0; i < pages.length; ++i) {
+			pages[i] = ByteBuffer.allocateDirect(pageSize(size, i));
+		}
+		return pages;
+	}
+
+	private static ByteBuffer[] mapPages(FileChannel channel, MapMode mode, long size) throws IOException {
+		var pages = new ByteBuffer[numPages(size)];
+		for (int i = 0; i < pages.length; ++i) {
+			pages[i] = channel.map(mode, MazeFile.HEADER_SIZE + i * PAGE_SIZE, pageSize(size, i));
+		}
+		return pages;
+	}
+
+	private static int numPages(long size) {
+		return Math.toIntExact((size + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+	}
+
+	private static int pageSize(long size, int page) {
+		return (int) Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+	}
+
+	private final MazeFile.Header header;
+	private final ByteBuffer[] edgePages;
+	private final FileChannel channel;
+	private final TraversalState initialState;
+	private ByteBuffer[] statePages;
+	private long numEdges;
+
+	private OffHeapGrid(MazeFile.Header header, ByteBuffer[] edgePages, FileChannel channel,
+			TraversalState initialState, long numEdges) {
+		this.header = header;
+		this.edgePages = edgePages;
+		this.channel = channel;
+		this.initialState = initialState;
+		this.numEdges = numEdges;
+	}
+
+	@Override
+	public int numCols() {
+		return header.numCols();
+	}
+
+	@Override
+	public int numRows() {
+		return header.numRows();
+	}
+
+	@Override
+	public int numNeighbors() {
+		return header.numNeighbors();
+	}
+
+	@Override
+	public long edgeCount() {
+		return numEdges;
+	}
+
+	/**
+	 * @return if the grid is backed by a maze file
+	 */
+	public boolean isMapped() {
+		return channel != null;
+	}
+
+	/**
+	 * @return grid graph reading and writing this grid, only possible for grids with at most
+	 *         {@link Integer#MAX_VALUE} cells
+	 */
+	public MazeGridGraph asGridGraph() {
+		return MazeGridGraph.of(this);
+	}
+
+	private long cellIndex(int col, int row) {
+		return (long) row * header.numCols() + col;
+	}
+
+	private long edgeBit(int col, int row, int dir) {
+		return cellIndex(col, row) * numForwardDirections() + dir;
+	}
+
+	private ByteBuffer page(ByteBuffer[] pages, long index) {
+		return pages[(int) (index >>> PAGE_SHIFT)];
+	}
+
+	@Override
+	public boolean hasEdge(int col, int row, int dir) {
+		long bit = edgeBit(col, row, dir), index = bit >>> 3;
+		return (page(edgePages, index).get((int) (index & (PAGE_SIZE - 1))) & (1 << (bit & 7))) != 0;
+	}
+
+	@Override
+	public void setEdge(int col, int row, int dir, boolean edge) {
+		if (!isInside(col + dx(dir), row + dy(dir))) {
+			throw new IllegalArgumentException("No neighbor in direction %d of cell (%d,%d)".formatted(dir, col, row));
+		}
+		long bit = edgeBit(col, row, dir), index = bit >>> 3;
+		ByteBuffer page = page(edgePages, index);
+		int offset = (int) (index & (PAGE_SIZE - 1));
+		int b = page.get(offset), mask = 1 << (bit & 7);
+		if (edge && (b & mask) == 0) {
+			page.put(offset, (byte) (b | mask));
+			++numEdges;
+		} else if (!edge && (b & mask) != 0) {
+			page.put(offset, (byte) (b & ~mask));
+			--numEdges;
+		}
+	}
+
+	@Override
+	public TraversalState getState(int col, int row) {
+		if (statePages == null) {
+			return initialState;
+		}
+		long index = cellIndex(col, row);
+		return STATES[page(statePages, index).get((int) (index & (PAGE_SIZE - 1)))];
+	}
+
+	@Override
+	public void setState(int col, int row, TraversalState state) {
+		if (statePages == null) {
+			statePages = allocatePages((long) header.numCols() * header.numRows());
+			if (initialState.ordinal() != 0) {
+				fillStates(initialState);
+			}
+		}
+		long index = cellIndex(col, row);
+		page(statePages, index).put((int) (index & (PAGE_SIZE - 1)), (byte) state.ordinal());
+	}
+
+	private void fillStates(TraversalState state) {
+		byte[] chunk = new byte[1 << 16];
+		Arrays.fill(chunk, (byte) state.ordinal());
+		for (ByteBuffer page : statePages) {
+			for (int offset = 0; offset < page.capacity(); offset += chunk.length) {
+				page.put(offset, chunk, 0, Math.min(chunk.length, page.capacity() - offset));
+			}
+		}
+	}
+
+	private long countEdges() {
+		long count = 0;
+		for (ByteBuffer page : edgePages) {
+			int offset = 0;
+			for (; offset + 8 <= page.capacity(); offset += 8) {
+				count += Long.bitCount(page.getLong(offset));
+			}
+			for (; offset < page.capacity(); ++offset) {
+				count += Integer.bitCount(page.get(offset) & 0xFF);
+			}
+		}
+		return count;
+	}
+
+	// only cells at the grid border can have edge bits leading outside
+	private void checkBorderEdges() throws IOException {
+		int lastCol = numCols() - 1, lastRow = numRows() - 1;
+		for (int row = 0; row < lastRow; ++row) {
+			checkCellEdges(0, row);
+			checkCellEdges(lastCol, row);
+		}
+		for (int col = 0; col <= lastCol; ++col) {
+			checkCellEdges(col, lastRow);
+		}
+	}
+
+	private void checkCellEdges(int col, int row) throws IOException {
+		for (int dir = 0; dir < numForwardDirections(); ++dir) {
+			if (hasEdge(col, row, dir) && !isInside(col + dx(dir), row + dy(dir))) {
+				throw new IOException("Edge leaves the grid at cell (%d,%d)".formatted(col, row));
+			}
+		}
+	}
+
+	/**
+	 * Closes the maze file if the grid is backed by a file. The data of the file is written by the operating system
+	 * and stays accessible until the grid is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+}
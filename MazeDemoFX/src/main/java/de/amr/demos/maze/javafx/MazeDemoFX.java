@@ -35,12 +35,15 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import org.tinylog.Logger;
 
 /**
  * Generates mazes using different generation algorithms, draws them and shows
  * the path from top left to bottom right cell.
  * <p>
  * By pressing the PLUS-/MINUS-key the user can change the grid resolution.
+ * <p>
+ * With parameter {@code --seed=<number>}, the sequence of generation algorithms is always the same.
  * 
  * @author Armin Reichert
  */
@@ -68,6 +71,7 @@ public class MazeDemoFX extends Application {
 		/*@formatter:on*/
 	};
 
+	private Random rnd = new Random();
 	private Canvas canvas;
 	private Timer timer;
 	private GridGraph2D<TraversalState, Integer> grid;
@@ -77,6 +81,14 @@ public class MazeDemoFX extends Application {
 
 	@Override
 	public void start(Stage primaryStage) {
+		String seed = getParameters().getNamed().get("seed");
+		if (seed != null) {
+			try {
+				rnd = new Random(Long.parseLong(seed));
+			} catch (NumberFormatException e) {
+				Logger.warn(() -> "Invalid seed '%s', sequence of algorithms is random".formatted(seed));
+			}
+		}
 		primaryStage.setTitle("Maze Generation & Pathfinding");
 		primaryStage.setOnCloseRequest(event -> timer.cancel());
 		primaryStage.setScene(createScene());
@@ -135,8 +147,8 @@ public class MazeDemoFX extends Application {
 		drawPath(path);
 	}
 
-	private static MazeGenerator randomMazeGenerator(GridGraph2D<TraversalState, Integer> grid) {
-		Class<?> generatorClass = GENERATOR_CLASSES[new Random().nextInt(GENERATOR_CLASSES.length)];
+	private MazeGenerator randomMazeGenerator(GridGraph2D<TraversalState, Integer> grid) {
+		Class<?> generatorClass = GENERATOR_CLASSES[rnd.nextInt(GENERATOR_CLASSES.length)];
 		try {
 			return (MazeGenerator) generatorClass.getConstructor(GridGraph2D.class).newInstance(grid);
 		} catch (Exception e) {
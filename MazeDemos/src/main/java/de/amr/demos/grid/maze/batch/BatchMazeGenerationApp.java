@@ -0,0 +1,128 @@
+package de.amr.demos.grid.maze.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+import de.amr.demos.grid.maze.batch.BatchMazeGenerator.PoolType;
+import de.amr.maze.alg.mst.BoruvkaMST;
+import de.amr.maze.alg.mst.KruskalMST;
+import de.amr.maze.alg.mst.PrimMST;
+import de.amr.maze.alg.others.Armin;
+import de.amr.maze.alg.others.BinaryTree;
+import de.amr.maze.alg.others.BinaryTreeRandom;
+import de.amr.maze.alg.others.Eller;
+import de.amr.maze.alg.others.HuntAndKill;
+import de.amr.maze.alg.others.HuntAndKillRandom;
+import de.amr.maze.alg.others.RecursiveDivision;
+import de.amr.maze.alg.others.Sidewinder;
+import de.amr.maze.alg.traversal.GrowingTreeLastOrRandom;
+import de.amr.maze.alg.traversal.IterativeDFS;
+import de.amr.maze.alg.traversal.RandomBFS;
+import de.amr.maze.alg.ust.WilsonUSTRandomCell;
+import de.amr.maze.alg.ust.WilsonUSTRowsTopDown;
+import org.tinylog.Logger;
+
+/**
+ * Generates a batch of mazes without any UI, e.g. for nightly runs.
+ * 
+ * <pre>
+ * java -cp <i>classpath</i> de.amr.demos.grid.maze.batch.BatchMazeGenerationApp -gen KruskalMST,Eller -w 200 -h 200 -count 100
+ * java -cp <i>classpath</i> de.amr.demos.grid.maze.batch.BatchMazeGenerationApp -count 50 -threads 8 -pool virtual
+ * </pre>
+ * 
+ * @author Armin Reichert
+ */
+public class BatchMazeGenerationApp {
+
+	private static final Class<?>[] GENERATORS = {
+		/*@formatter:off*/
+		BoruvkaMST.class,
+		KruskalMST.class,
+		PrimMST.class,
+		BinaryTree.class,
+		BinaryTreeRandom.class,
+		Eller.class,
+		Armin.class,
+		HuntAndKill.class,
+		HuntAndKillRandom.class,
+		IterativeDFS.class,
+		RandomBFS.class,
+		GrowingTreeLastOrRandom.class,
+		Sidewinder.class,
+		RecursiveDivision.class,
+		WilsonUSTRandomCell.class,
+		WilsonUSTRowsTopDown.class,
+		/*@formatter:on*/
+	};
+
+	public static class Params {
+
+		@Parameter(names = { "-generators", "-gen" }, description = "comma-separated generator class names (default: all)")
+		public List<String> generators = new ArrayList<>();
+
+		@Parameter(names = { "-width", "-w" }, description = "maze width (num columns)")
+		public int width = 100;
+
+		@Parameter(names = { "-height", "-h" }, description = "maze height (num rows)")
+		public int height = 100;
+
+		@Parameter(names = { "-count", "-n" }, description = "number of mazes per generator")
+		public int count = 10;
+
+		@Parameter(names = { "-seed" }, description = "seed of the first job, following jobs use the next seeds")
+		public long seed = 0;
+
+		@Parameter(names = { "-threads", "-t" }, description = "number of worker threads")
+		public int threads = Runtime.getRuntime().availableProcessors();
+
+		@Parameter(names = { "-pool" }, description = "worker pool type (fj, virtual)")
+		public String pool = "fj";
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		var params = new Params();
+		JCommander.newBuilder().addObject(params).build().parse(args);
+		var poolType = switch (params.pool) {
+		case "fj" -> PoolType.FORK_JOIN;
+		case "virtual" -> PoolType.VIRTUAL_THREADS;
+		default -> throw new IllegalArgumentException("Unknown pool type: " + params.pool);
+		};
+		var jobs = createJobs(params);
+		Logger.info(() -> "Running %d jobs on %s pool with %d threads".formatted(jobs.size(), poolType, params.threads));
+		var report = new BatchMazeGenerator(poolType, params.threads).run(jobs);
+		report.log();
+		System.exit(report.numFailed() == 0 ? 0 : 1);
+	}
+
+	private static List<MazeJob> createJobs(Params params) {
+		var generatorClasses = params.generators.isEmpty() ? Arrays.asList(GENERATORS)
+				: params.generators.stream().map(BatchMazeGenerationApp::findGenerator).toList();
+		var jobs = new ArrayList<MazeJob>();
+		long seed = params.seed;
+		for (var generatorClass : generatorClasses) {
+			for (int i = 0; i < params.count; ++i) {
+				jobs.add(new MazeJob(generatorClass, params.width, params.height, seed++));
+			}
+		}
+		return jobs;
+	}
+
+	// accepts simple names of the predefined generators or fully qualified class names
+	private static Class<?> findGenerator(String name) {
+		var predefined = Arrays.stream(GENERATORS).filter(generatorClass -> generatorClass.getSimpleName().equals(name))
+				.findFirst();
+		if (predefined.isPresent()) {
+			return predefined.get();
+		}
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException x) {
+			throw new IllegalArgumentException("Unknown generator: " + name);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package de.amr.demos.grid.maze.batch;
+
+import static de.amr.graph.core.api.TraversalState.UNVISITED;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.GridFactory;
+import de.amr.maze.alg.core.MazeGenerator;
+import de.amr.util.StopWatch;
+
+/**
+ * Headless maze generation engine running a batch of jobs on a worker pool.
+ * <p>
+ * Each job creates its own (non-observable) grid, so jobs never share any state and no AWT/Swing class is touched.
+ * 
+ * @author Armin Reichert
+ */
+public class BatchMazeGenerator {
+
+	public enum PoolType {
+		/** Fork-join pool with the configured parallelism. */
+		FORK_JOIN,
+		/** One virtual thread per job, at most "parallelism" jobs in progress at the same time. */
+		VIRTUAL_THREADS
+	}
+
+	private final PoolType poolType;
+	private final int parallelism;
+
+	public BatchMazeGenerator(PoolType poolType, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+		}
+		this.poolType = poolType;
+		this.parallelism = parallelism;
+	}
+
+	public BatchMazeGenerator() {
+		this(PoolType.FORK_JOIN, Runtime.getRuntime().availableProcessors());
+	}
+
+	public PoolType getPoolType() {
+		return poolType;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Runs the given jobs and waits until all of them have finished.
+	 * 
+	 * @param jobs list of jobs
+	 * @return report with the job results in job order
+	 */
+	public BatchReport run(List<MazeJob> jobs) {
+		// limits the number of grids in memory at the same time, virtual threads would otherwise start all jobs at once
+		var slots = new Semaphore(parallelism);
+		var watch = new StopWatch();
+		watch.start();
+		List<MazeJobResult> results;
+		try (ExecutorService executor = createExecutor()) {
+			List<Future<MazeJobResult>> futures = jobs.stream()
+					.map(job -> executor.submit(() -> runJobInSlot(job, slots))).toList();
+			results = futures.stream().map(BatchMazeGenerator::await).toList();
+		}
+		watch.stop();
+		return new BatchReport(results, watch.getMillis());
+	}
+
+	private ExecutorService createExecutor() {
+		return switch (poolType) {
+		case FORK_JOIN -> new ForkJoinPool(parallelism);
+		case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+		};
+	}
+
+	private static MazeJobResult await(Future<MazeJobResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Batch run interrupted", x);
+		} catch (ExecutionException x) {
+			// runJob() catches all exceptions and errors, so this is a bug
+			throw new IllegalStateException(x.getCause());
+		}
+	}
+
+	private static MazeJobResult runJobInSlot(MazeJob job, Semaphore slots) throws InterruptedException {
+		slots.acquire();
+		try {
+			return runJob(job);
+		} finally {
+			slots.release();
+		}
+	}
+
+	/**
+	 * Runs a single job in the calling thread.
+	 * 
+	 * @param job the job
+	 * @return the job result, never throws an exception. Errors like {@link OutOfMemoryError} for a too large maze are
+	 *         also returned as failure, so a single job cannot abort a batch.
+	 */
+	public static MazeJobResult runJob(MazeJob job) {
+		var watch = new StopWatch();
+		watch.start();
+		try {
+			var grid = GridFactory.emptyGrid(job.numCols(), job.numRows(), Grid4Topology.get(), UNVISITED, 0);
+			var generator = createGenerator(job, grid);
+			generator.createMaze(0, 0);
+			watch.stop();
+			return MazeJobResult.success(job, watch.getMillis());
+		} catch (InvocationTargetException x) {
+			watch.stop();
+			return MazeJobResult.failure(job, watch.getMillis(), x.getCause());
+		} catch (Exception | Error x) {
+			watch.stop();
+			return MazeJobResult.failure(job, watch.getMillis(), x);
+		}
+	}
+
+	// passes the job seed to generators having a seed constructor, like the demo app does
+	private static MazeGenerator createGenerator(MazeJob job, GridGraph2D<?, ?> grid) throws ReflectiveOperationException {
+		try {
+			return (MazeGenerator) job.generatorClass().getConstructor(GridGraph2D.class, long.class).newInstance(grid,
+					job.seed());
+		} catch (NoSuchMethodException x) {
+			return (MazeGenerator) job.generatorClass().getConstructor(GridGraph2D.class).newInstance(grid);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package de.amr.demos.grid.maze.batch;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.tinylog.Logger;
+
+/**
+ * Result of a batch run: per-job timings, throughput and failures.
+ * 
+ * @param results    the job results in job order
+ * @param wallMillis wall time of the complete batch run in milliseconds
+ * 
+ * @author Armin Reichert
+ */
+public record BatchReport(List<MazeJobResult> results, double wallMillis) {
+
+	public int numJobs() {
+		return results.size();
+	}
+
+	public long numSucceeded() {
+		return results.stream().filter(MazeJobResult::succeeded).count();
+	}
+
+	public long numFailed() {
+		return numJobs() - numSucceeded();
+	}
+
+	/**
+	 * @return number of successfully generated mazes per second of wall time
+	 */
+	public double throughput() {
+		return wallMillis > 0 ? numSucceeded() * 1000.0 / wallMillis : 0;
+	}
+
+	/**
+	 * @return number of failures grouped by "generator: exception type"
+	 */
+	public Map<String, Long> failureSummary() {
+		return results.stream().filter(result -> !result.succeeded())
+				.collect(groupingBy(result -> "%s: %s".formatted(result.job().generatorClass().getSimpleName(),
+						result.failure().getClass().getSimpleName()), TreeMap::new, counting()));
+	}
+
+	public void log() {
+		for (var result : results) {
+			if (result.succeeded()) {
+				Logger.info(() -> "%-45s %10.1f ms".formatted(result.job(), result.millis()));
+			} else {
+				Logger.error(() -> "%-45s %10.1f ms FAILED: %s".formatted(result.job(), result.millis(), result.failure()));
+			}
+		}
+		Logger.info(() -> "Jobs: %d, succeeded: %d, failed: %d".formatted(numJobs(), numSucceeded(), numFailed()));
+		Logger.info(() -> "Wall time: %.1f ms, throughput: %.2f mazes/sec".formatted(wallMillis, throughput()));
+		failureSummary().forEach((cause, count) -> Logger.error(() -> "%4d x %s".formatted(count, cause)));
+	}
+}
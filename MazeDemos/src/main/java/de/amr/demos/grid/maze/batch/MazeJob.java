@@ -0,0 +1,34 @@
+package de.amr.demos.grid.maze.batch;
+
+import java.util.Objects;
+
+/**
+ * A single maze generation job of a batch run.
+ * 
+ * @param generatorClass maze generator class, must have a public constructor taking a {@code GridGraph2D} and
+ *                       optionally one taking a {@code GridGraph2D} and a {@code long} seed
+ * @param numCols        number of grid columns
+ * @param numRows        number of grid rows
+ * @param seed           seed passed to the generator if it has a seed constructor, the same seed then creates the
+ *                       same maze. For other generators the seed is only a label of the job.
+ * 
+ * @author Armin Reichert
+ */
+public record MazeJob(Class<?> generatorClass, int numCols, int numRows, long seed) {
+
+	public MazeJob {
+		Objects.requireNonNull(generatorClass);
+		if (numCols <= 0 || numRows <= 0) {
+			throw new IllegalArgumentException("Illegal grid size: %dx%d".formatted(numCols, numRows));
+		}
+	}
+
+	public int numCells() {
+		return numCols * numRows;
+	}
+
+	@Override
+	public String toString() {
+		return "%s %dx%d seed=%d".formatted(generatorClass.getSimpleName(), numCols, numRows, seed);
+	}
+}
@@ -0,0 +1,31 @@
+package de.amr.demos.grid.maze.batch;
+
+import java.util.Optional;
+
+/**
+ * Outcome of a maze generation job.
+ * 
+ * @param job     the job
+ * @param millis  wall time of the job in milliseconds (grid creation and maze generation)
+ * @param failure the exception that caused the job to fail or {@code null} if the job succeeded
+ * 
+ * @author Armin Reichert
+ */
+public record MazeJobResult(MazeJob job, double millis, Throwable failure) {
+
+	public static MazeJobResult success(MazeJob job, double millis) {
+		return new MazeJobResult(job, millis, null);
+	}
+
+	public static MazeJobResult failure(MazeJob job, double millis, Throwable failure) {
+		return new MazeJobResult(job, millis, failure);
+	}
+
+	public boolean succeeded() {
+		return failure == null;
+	}
+
+	public Optional<Throwable> getFailure() {
+		return Optional.ofNullable(failure);
+	}
+}
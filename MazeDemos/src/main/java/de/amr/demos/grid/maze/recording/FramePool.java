@@ -0,0 +1,70 @@
+package de.amr.demos.grid.maze.recording;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import de.amr.demos.maze.common.IndexedPalette;
+
+/**
+ * Pool of reusable frame buffers, all having the same size and image type. Buffers may be released by another thread
+ * than the one capturing them.
+ * <p>
+ * If a palette is given, the buffers are indexed images using this palette and captured areas are converted to palette
+ * indices.
+ * 
+ * @author Armin Reichert
+ */
+class FramePool {
+
+	private final int width;
+	private final int height;
+	private final int imageType;
+	private final IndexedPalette palette;
+	private final Deque<BufferedImage> freeBuffers = new ArrayDeque<>();
+
+	public FramePool(int width, int height, int imageType, IndexedPalette palette) {
+		this.width = width;
+		this.height = height;
+		this.imageType = imageType;
+		this.palette = palette;
+	}
+
+	public FramePool(int width, int height, int imageType) {
+		this(width, height, imageType, null);
+	}
+
+	public boolean fits(BufferedImage image) {
+		return image.getWidth() == width && image.getHeight() == height && image.getType() == imageType;
+	}
+
+	/**
+	 * Copies the given area of the source image into a buffer taken from the pool. The rest of the buffer keeps its
+	 * previous content.
+	 * 
+	 * @param source
+	 *                 source image of the pool's size and image type (the type of the source, not of the buffers)
+	 * @param area
+	 *                 area to copy
+	 * @return pool buffer containing a copy of the area, must be given back using {@link #release(BufferedImage)}
+	 */
+	public synchronized BufferedImage capture(BufferedImage source, Rectangle area) {
+		BufferedImage buffer = freeBuffers.isEmpty() ? createBuffer() : freeBuffers.removeFirst();
+		if (palette != null) {
+			palette.convert(source, area, buffer);
+		} else {
+			buffer.getRaster().setRect(source.getRaster().createChild(area.x, area.y, area.width, area.height, area.x,
+					area.y, null));
+		}
+		return buffer;
+	}
+
+	private BufferedImage createBuffer() {
+		return palette != null ? palette.createImage(width, height) : new BufferedImage(width, height, imageType);
+	}
+
+	public synchronized void release(BufferedImage buffer) {
+		freeBuffers.addFirst(buffer);
+	}
+}
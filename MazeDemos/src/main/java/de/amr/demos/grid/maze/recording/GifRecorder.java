@@ -5,46 +5,168 @@ import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageOutputStream;
-import java.awt.image.RenderedImage;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.amr.demos.maze.common.FrameRecorder;
+import de.amr.demos.maze.common.FrameSampler;
+import de.amr.demos.maze.common.IndexedPalette;
 
 /**
  * Records a sequence of buffered images in an animated GIF file.
+ * <p>
+ * The recorder tracks the union of the image areas changed since the last written frame. Except for the first frame,
+ * only this area is stored as a GIF sub-image at its offset, the previous frame content stays in place
+ * ({@code disposalMethod=doNotDispose}).
+ * <p>
+ * Frames are sampled either at a fixed scan rate (every n-th request) or adaptively with a frame budget or a target
+ * duration, see {@link FrameSampler}. Skipped frames are not kept, their changes are contained in the next written
+ * frame.
+ * <p>
+ * Frame requests pass the (live) source image, e.g. the drawing buffer of a canvas. The recorder decides first if it
+ * needs the frame and only then copies the changed area into a reusable buffer, so skipped requests cost almost
+ * nothing.
+ * <p>
+ * If a palette is set, frames are captured into indexed images using this palette. The GIF writer then takes them as
+ * they are instead of reducing the colors of every frame, and a pooled frame buffer needs a quarter of the memory.
+ * <p>
+ * If an encoder executor is set, the GIF encoding runs there. Captured frames are passed through a bounded queue, so
+ * the recording thread only waits if the encoder falls behind by more than the queue capacity. Frames of one recording
+ * are always encoded in order, one after the other, but any number of recordings can share the same executor.
+ * <p>
+ * With parallel encoding, each frame is encoded by its own task on the encoder executor instead, so a single long
+ * recording uses all threads of the executor. Each task writes its frame as a complete single-image GIF into memory,
+ * a sequencer takes the frames in the order they were captured, strips the GIF header and trailer and appends them to
+ * the file. The number of frames being encoded or waiting for their predecessors is bounded by the queue capacity.
  * 
  * @author Armin Reichert (original code by Elliot Kroo (elliot[at]kroo[dot]net))
  */
-public class GifRecorder implements AutoCloseable {
+public class GifRecorder implements FrameRecorder {
 
 	private ImageWriter gifWriter;
 	private ImageWriteParam param;
 	private IIOMetadata metadata;
 
 	private final int imageType;
-	private int scanRate;
+	private IndexedPalette palette;
+	private ImageTypeSpecifier imageTypeSpecifier;
+	private final FrameSampler sampler = new FrameSampler();
 	private int delayMillis;
 	private int endDelayMillis;
 	private boolean loop;
 
-	private int requests;
-	private int framesWritten;
-	private RenderedImage lastFrameWritten;
-	private List<RenderedImage> skippedFrames = new LinkedList<>();
+	private Executor encoder;
+	private int queueCapacity;
+	private BlockingQueue<Frame> frameQueue;
+	private boolean parallelEncoding;
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+	// set when a frame could not be encoded, no more frames are recorded then
+	private volatile boolean failed;
+
+	// parallel encoding: output file, permits for frames in flight and encoded frames waiting for their predecessors
+	private OutputStream gifOut;
+	private Semaphore framesInFlight;
+	private final SortedMap<Integer, byte[]> encodedFrames = new TreeMap<>();
+	private int nextFrameToWrite; // guarded by encodedFrames
+	private boolean closed; // guarded by encodedFrames
+	private byte[] globalColorTable;
+
+	private int framesCaptured;
+	private volatile int framesWritten;
+	private FramePool framePool;
+	private BufferedImage lastSource;
+	// union of the areas changed since the last written frame, null if nothing changed
+	private Rectangle changedArea;
+
+	// captured frame: pool buffer, region of the buffer to write, delay and index in the recording
+	private record Frame(FramePool pool, BufferedImage buffer, Rectangle region, int delayMillis, int index) {
+	}
+
+	private static final Frame END_OF_RECORDING = new Frame(null, null, null, 0, -1);
+
+	private static final int GIF_EXTENSION = 0x21, GIF_IMAGE_SEPARATOR = 0x2C, GIF_TRAILER = 0x3B;
 
 	public GifRecorder(int imageType) throws IOException {
 		this.imageType = imageType;
-		scanRate = 1;
 		delayMillis = 0;
 		endDelayMillis = 0;
 		loop = false;
 	}
 
+	@Override
 	public int getFramesWritten() {
 		return framesWritten;
 	}
 
+	/**
+	 * Lets the recorder capture the frames into indexed images using the given palette. Must be set before the recording
+	 * is started.
+	 * 
+	 * @param palette
+	 *                  palette containing the colors used by the recorded images or {@code null} for full-color frames
+	 */
+	public void setPalette(IndexedPalette palette) {
+		this.palette = palette;
+	}
+
+	/**
+	 * Lets the GIF encoding run on the given executor instead of the thread requesting the frames. Must be set before
+	 * the recording is started.
+	 * 
+	 * @param encoder
+	 *                        executor running the encoding or {@code null} for encoding in the requesting thread
+	 * @param queueCapacity
+	 *                        maximum number of captured frames waiting for being encoded
+	 */
+	public void setEncoder(Executor encoder, int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be positive but is " + queueCapacity);
+		}
+		this.encoder = encoder;
+		this.queueCapacity = queueCapacity;
+		frameQueue = encoder != null ? new ArrayBlockingQueue<>(queueCapacity) : null;
+	}
+
+	/**
+	 * Lets the frames of this recording be encoded in parallel on the encoder executor. Has no effect without an encoder
+	 * executor. Must be set before the recording is started.
+	 * 
+	 * @param parallelEncoding
+	 *                           if the frames are encoded in parallel
+	 */
+	public void setParallelEncoding(boolean parallelEncoding) {
+		this.parallelEncoding = parallelEncoding;
+	}
+
+	private boolean isEncodingInParallel() {
+		return encoder != null && parallelEncoding;
+	}
+
+	/**
+	 * @return future completed when the GIF file has been completely written after the recording was closed
+	 */
+	@Override
+	public CompletableFuture<Void> getCompletion() {
+		return completion;
+	}
+
 	/**
 	 * Starts the recording.
 	 * 
@@ -59,108 +181,358 @@ public class GifRecorder implements AutoCloseable {
 				gifFile.delete();
 				System.out.println("Deleted existing file " + gifFile);
 			}
-			gifWriter = ImageIO.getImageWritersByFormatName("gif").next(); // assuming this always exists
-			configureMetadata(delayMillis);
-			gifWriter.setOutput(ImageIO.createImageOutputStream(gifFile));
-			gifWriter.prepareWriteSequence(metadata);
-			requests = 0;
+			imageTypeSpecifier = palette != null
+					? new ImageTypeSpecifier(palette.getColorModel(), palette.getColorModel().createCompatibleSampleModel(1, 1))
+					: ImageTypeSpecifier.createFromBufferedImageType(imageType);
+			if (isEncodingInParallel()) {
+				gifOut = new BufferedOutputStream(new FileOutputStream(gifFile), 1 << 16);
+				framesInFlight = new Semaphore(queueCapacity);
+				synchronized (encodedFrames) {
+					encodedFrames.clear();
+					nextFrameToWrite = 0;
+					closed = false;
+				}
+				globalColorTable = null;
+			} else {
+				gifWriter = createGifWriter();
+				param = createWriteParam(gifWriter);
+				metadata = createMetadata(gifWriter, param, delayMillis, null);
+				gifWriter.setOutput(ImageIO.createImageOutputStream(gifFile));
+				gifWriter.prepareWriteSequence(metadata);
+			}
+			sampler.start(delayMillis);
+			framesCaptured = 0;
 			framesWritten = 0;
-			lastFrameWritten = null;
-			skippedFrames.clear();
+			completion = new CompletableFuture<>();
+			failed = false;
+			framePool = null;
+			lastSource = null;
+			changedArea = null;
 			System.out.println("Creating file: " + gifFile);
-			System.out.print("Frames: ");
+			if (encoder == null) {
+				System.out.print("Frames: ");
+			}
 		} catch (IOException e) {
 			System.out.println("Could not start recording");
 			e.printStackTrace();
 		}
 	}
 
-	/**
-	 * Asks the recorder for adding the given frame.
-	 * 
-	 * @param frame
-	 *                 the frame to be added
-	 * @param always
-	 *                 if {@code true} the request will always be accepted
+	@Override
+	public void requestFrame(BufferedImage source, Rectangle changedArea, boolean always) {
+		if (failed) {
+			return;
+		}
+		Rectangle area = changedArea != null ? changedArea : bounds(source);
+		addChangedArea(area);
+		lastSource = source;
+		if (sampler.accept(always)) {
+			writeFrame(source, this.changedArea, delayMillis);
+			this.changedArea = null;
+		}
+	}
+
+	private void addChangedArea(Rectangle area) {
+		if (changedArea == null) {
+			changedArea = new Rectangle(area);
+		} else {
+			changedArea.add(area);
+		}
+	}
+
+	private static Rectangle bounds(BufferedImage image) {
+		return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+	}
+
+	/*
+	 * Copies the given area of the source image into a pool buffer and writes it as a GIF sub-image. The first frame is
+	 * always written completely. An empty area is written as a single pixel because the frame still has to carry its
+	 * delay time.
 	 */
-	public void requestFrame(RenderedImage frame, boolean always) {
-		++requests;
-		if (always || requests % scanRate == 1) {
-			writeFrame(frame);
-			lastFrameWritten = frame;
-			skippedFrames.clear();
+	private void writeFrame(BufferedImage source, Rectangle area, int delayMillis) {
+		if (failed) {
+			return;
+		}
+		Rectangle bounds = bounds(source);
+		Rectangle region = framesCaptured == 0 ? bounds : area.intersection(bounds);
+		if (region.isEmpty()) {
+			region = new Rectangle(0, 0, 1, 1);
+		}
+		if (framePool == null || !framePool.fits(source)) {
+			framePool = new FramePool(source.getWidth(), source.getHeight(), source.getType(), palette);
+		}
+		if (isEncodingInParallel()) {
+			// wait before capturing, the pool buffer is only released after encoding
+			framesInFlight.acquireUninterruptibly();
 		}
-		else {
-			skippedFrames.add(frame);
+		BufferedImage buffer = framePool.capture(source, region);
+		Frame frame = new Frame(framePool, buffer, region, delayMillis, framesCaptured++);
+		if (encoder == null) {
+			encode(frame);
+		} else if (parallelEncoding) {
+			encoder.execute(() -> sequence(frame.index(), encodeSingleImage(frame)));
+		} else {
+			enqueue(frame);
 		}
 	}
 
-	/**
-	 * Asks the recorder for adding the given frame.
-	 * 
-	 * @param frame
-	 *                the frame to be added
+	private void enqueue(Frame frame) {
+		try {
+			frameQueue.put(frame);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Frame could not be queued");
+			return;
+		}
+		if (draining.compareAndSet(false, true)) {
+			encoder.execute(this::drain);
+		}
+	}
+
+	/*
+	 * Encodes the queued frames. At most one drain task per recorder is active, the check after resetting the flag
+	 * catches frames queued while the task was finishing. After a failure, the queued frames are only released, so the
+	 * recording thread never blocks on a full queue.
 	 */
-	public void requestFrame(RenderedImage frame) {
-		requestFrame(frame, false);
+	private void drain() {
+		do {
+			try {
+				Frame frame;
+				while ((frame = frameQueue.poll()) != null) {
+					if (frame == END_OF_RECORDING) {
+						finish();
+					} else {
+						encode(frame);
+					}
+				}
+			} finally {
+				draining.set(false);
+			}
+		} while (!frameQueue.isEmpty() && draining.compareAndSet(false, true));
 	}
 
-	private void writeFrame(RenderedImage frame) {
+	private void encode(Frame frame) {
 		try {
-			gifWriter.writeToSequence(new IIOImage(frame, null, metadata), param);
-			++framesWritten;
-			if (framesWritten % 50 == 0) {
-				System.out.print(framesWritten);
+			if (failed) {
+				return;
 			}
-			else if (framesWritten % 10 == 0) {
-				System.out.print(".");
+			param = createWriteParam(gifWriter);
+			metadata = createMetadata(gifWriter, param, frame.delayMillis(), frame.region());
+			BufferedImage image = frameImage(frame, param);
+			gifWriter.writeToSequence(new IIOImage(image, null, metadata), param);
+			++framesWritten;
+			if (encoder == null) {
+				if (framesWritten % 50 == 0) {
+					System.out.print(framesWritten);
+				}
+				else if (framesWritten % 10 == 0) {
+					System.out.print(".");
+				}
 			}
-		} catch (IOException e) {
-			System.out.println("Frame could not be written");
+		} catch (Throwable e) {
+			fail(e);
+		} finally {
+			frame.pool().release(frame.buffer());
+		}
+	}
+
+	/*
+	 * Stops recording frames. The file is still closed when the recording is closed, but it is incomplete, so the
+	 * completion future fails.
+	 */
+	private void fail(Throwable e) {
+		failed = true;
+		if (completion.completeExceptionally(e)) {
+			System.out.println("Recording failed, no more frames are recorded");
 			e.printStackTrace();
 		}
 	}
 
-	/**
-	 * Stops the recording and releases all resources.
+	// image to be written for the given frame, sets the source region of the write parameters if needed
+	private static BufferedImage frameImage(Frame frame, ImageWriteParam param) {
+		BufferedImage image = frame.buffer();
+		Rectangle region = frame.region();
+		if (image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+			// the GIF writer ignores the offset of indexed sub-images
+			param.setSourceRegion(region);
+		} else if (region.width < image.getWidth() || region.height < image.getHeight()) {
+			// a source region would let the GIF writer reduce the colors of the complete image
+			image = image.getSubimage(region.x, region.y, region.width, region.height);
+		}
+		return image;
+	}
+
+	/*
+	 * Parallel encoding: encodes the frame as a complete GIF file in memory, using a writer of its own. If the frame
+	 * could not be encoded, the recording fails and an empty array is returned, so the sequencer still gets every index
+	 * and releases its permit.
 	 */
-	@Override
-	public void close() {
-		if (skippedFrames.size() > 0) {
+	private byte[] encodeSingleImage(Frame frame) {
+		ImageWriter writer = null;
+		try {
+			if (failed) {
+				return new byte[0];
+			}
+			writer = createGifWriter();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+				writer.setOutput(out);
+				ImageWriteParam frameParam = createWriteParam(writer);
+				IIOMetadata frameMetadata = createMetadata(writer, frameParam, frame.delayMillis(), frame.region());
+				writer.write(null, new IIOImage(frameImage(frame, frameParam), null, frameMetadata), frameParam);
+			}
+			return bytes.toByteArray();
+		} catch (Throwable e) {
+			fail(e);
+			return new byte[0];
+		} finally {
+			if (writer != null) {
+				writer.dispose();
+			}
+			frame.pool().release(frame.buffer());
+		}
+	}
+
+	/*
+	 * Parallel encoding: collects the encoded frames and appends them to the file in the order of their indices. The file
+	 * is finished when the recording is closed and all frames have been written. After a failure, the frames are only
+	 * counted off and the file is closed without trailer.
+	 */
+	private void sequence(int index, byte[] gif) {
+		synchronized (encodedFrames) {
+			encodedFrames.put(index, gif);
+			while (!encodedFrames.isEmpty() && encodedFrames.firstKey() == nextFrameToWrite) {
+				appendFrame(encodedFrames.remove(nextFrameToWrite++));
+				framesInFlight.release();
+			}
+			finishIfComplete();
+		}
+	}
+
+	private void finishIfComplete() {
+		if (closed && nextFrameToWrite == framesCaptured) {
 			try {
-				configureMetadata(0);
-			} catch (Exception e) {
-				e.printStackTrace();
+				try {
+					if (!failed) {
+						gifOut.write(GIF_TRAILER);
+					}
+				} finally {
+					gifOut.close();
+				}
+				completion.complete(null);
+			} catch (Throwable e) {
+				fail(e);
 			}
 		}
-		System.out.println("\nFlushing last 20 frames of " + skippedFrames.size());
-		for (int i = 0; i < skippedFrames.size(); ++i) {
-			if (i < skippedFrames.size() - 10) {
-				continue;
+	}
+
+	/*
+	 * Appends the frame blocks (extensions and image) of a single-image GIF to the file. The header is taken from the
+	 * first frame, the color table of the first frame becomes the global color table. The color table of each frame is
+	 * only kept as local color table if it differs from the global one.
+	 */
+	private void appendFrame(byte[] gif) {
+		if (failed || gif.length == 0) {
+			return;
+		}
+		try {
+			int screenFlags = gif[10] & 0xFF; // logical screen descriptor
+			int headerSize = 13 + colorTableSize(screenFlags), end = gif.length - 1; // without trailer
+			int descriptor = imageDescriptorPosition(gif, headerSize);
+			int imageFlags = gif[descriptor + 9] & 0xFF, imageData = descriptor + 10 + colorTableSize(imageFlags);
+			int tableFlags = (imageFlags & 0x80) != 0 ? imageFlags : screenFlags;
+			byte[] colorTable = (imageFlags & 0x80) != 0 ? Arrays.copyOfRange(gif, descriptor + 10, imageData)
+					: Arrays.copyOfRange(gif, 13, headerSize);
+			if (colorTable.length == 0) {
+				throw new IOException("Encoded frame has no color table");
 			}
-			writeFrame(skippedFrames.get(i));
+			if (globalColorTable == null) {
+				gifOut.write(gif, 0, 10);
+				gifOut.write(0x80 | (screenFlags & 0x78) | (tableFlags & 7));
+				gifOut.write(gif, 11, 2);
+				gifOut.write(colorTable);
+				globalColorTable = colorTable;
+			}
+			gifOut.write(gif, headerSize, descriptor + 9 - headerSize);
+			if (Arrays.equals(colorTable, globalColorTable)) {
+				gifOut.write(imageFlags & 0x60);
+			} else {
+				gifOut.write(0x80 | (imageFlags & 0x60) | (tableFlags & 7));
+				gifOut.write(colorTable);
+			}
+			gifOut.write(gif, imageData, end - imageData);
+			++framesWritten;
+		} catch (Throwable e) {
+			fail(e);
 		}
-		if (skippedFrames.size() > 0) {
-			lastFrameWritten = skippedFrames.get(skippedFrames.size() - 1);
+	}
+
+	// size of the color table given by the flags of a logical screen or image descriptor
+	private static int colorTableSize(int flags) {
+		return (flags & 0x80) != 0 ? 3 << ((flags & 7) + 1) : 0;
+	}
+
+	// skips the extension blocks in front of the image
+	private static int imageDescriptorPosition(byte[] gif, int pos) throws IOException {
+		while (pos < gif.length && gif[pos] == GIF_EXTENSION) {
+			pos += 2; // introducer and label
+			while (pos < gif.length && gif[pos] != 0) {
+				pos += (gif[pos] & 0xFF) + 1;
+			}
+			++pos; // block terminator
 		}
-		// write last frame again using end delay time
-		if (lastFrameWritten != null) {
+		if (pos + 10 > gif.length || gif[pos] != GIF_IMAGE_SEPARATOR) {
+			throw new IOException("No image found in encoded frame");
+		}
+		return pos;
+	}
+
+	/*
+	 * Ends the GIF sequence and closes the file. After a failure, the file is only closed.
+	 */
+	private void finish() {
+		try {
 			try {
-				configureMetadata(endDelayMillis);
-				System.out.println("Writing final frame...");
-				writeFrame(lastFrameWritten);
-			} catch (Exception e) {
-				e.printStackTrace();
+				if (!failed) {
+					gifWriter.endWriteSequence();
+				}
+			} finally {
+				((ImageOutputStream) gifWriter.getOutput()).close();
+				gifWriter.dispose();
 			}
+			completion.complete(null);
+		} catch (Throwable e) {
+			fail(e);
 		}
-		System.out.println("Total: " + framesWritten + "\n");
-		try {
-			gifWriter.endWriteSequence();
-			((ImageOutputStream) gifWriter.getOutput()).close();
-			gifWriter.dispose();
-		} catch (IOException e) {
-			System.out.println("Could not stop recording");
-			e.printStackTrace();
+	}
+
+	/**
+	 * Stops the recording and releases all resources. If an encoder executor is used, the file is completed
+	 * asynchronously, see {@link #getCompletion()}.
+	 */
+	@Override
+	public void close() {
+		// write last frame again using end delay time, it contains the changes of the skipped frames
+		if (lastSource != null) {
+			System.out.println("Writing final frame...");
+			writeFrame(lastSource, changedArea != null ? changedArea : new Rectangle(), endDelayMillis);
+			lastSource = null;
+			changedArea = null;
+		}
+		framePool = null;
+		if (encoder == null) {
+			System.out.println("Total: " + framesWritten + "\n");
+			finish();
+		} else {
+			System.out.println("Captured: " + framesCaptured + ", encoding continues in background");
+			if (parallelEncoding) {
+				synchronized (encodedFrames) {
+					closed = true;
+					finishIfComplete();
+				}
+			} else {
+				enqueue(END_OF_RECORDING);
+			}
 		}
 	}
 
@@ -195,22 +567,64 @@ public class GifRecorder implements AutoCloseable {
 	}
 
 	/**
-	 * Sets the scan rate. A scan rate of 5 means that every 5th frame is recorded.
+	 * Sets the scan rate. A scan rate of 5 means that every 5th frame is recorded. Switches off adaptive sampling.
 	 * 
 	 * @param scanRate
 	 */
 	public void setScanRate(int scanRate) {
-		this.scanRate = scanRate;
+		sampler.setScanRate(scanRate);
 	}
 
-	private void configureMetadata(int delayMillis) throws IIOInvalidTreeException {
-		param = gifWriter.getDefaultWriteParam();
-		metadata = gifWriter.getDefaultImageMetadata(ImageTypeSpecifier.createFromBufferedImageType(imageType),
-				param);
+	/**
+	 * Lets the recorder adapt the scan rate such that the animation has about the given number of frames.
+	 * 
+	 * @param frameBudget
+	 *                           number of frames to record
+	 * @param expectedRequests
+	 *                           estimated number of frame requests, e.g. derived from the grid size, or 0 if unknown
+	 */
+	public void setFrameBudget(int frameBudget, int expectedRequests) {
+		sampler.setFrameBudget(frameBudget, expectedRequests);
+	}
+
+	/**
+	 * Lets the recorder adapt the scan rate such that the animation plays about the given time. The frame budget is
+	 * derived from the frame delay when the recording starts.
+	 * 
+	 * @param targetDurationMillis
+	 *                               play time of the animation in milliseconds (without end delay)
+	 * @param expectedRequests
+	 *                               estimated number of frame requests, e.g. derived from the grid size, or 0 if unknown
+	 */
+	public void setTargetDuration(int targetDurationMillis, int expectedRequests) {
+		sampler.setTargetDuration(targetDurationMillis, expectedRequests);
+	}
+
+	private static ImageWriter createGifWriter() {
+		return ImageIO.getImageWritersByFormatName("gif").next(); // assuming this always exists
+	}
+
+	private static ImageWriteParam createWriteParam(ImageWriter writer) {
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		// the GIF writer interlaces by default which garbles small indexed frames
+		param.setProgressiveMode(ImageWriteParam.MODE_DISABLED);
+		return param;
+	}
+
+	private IIOMetadata createMetadata(ImageWriter writer, ImageWriteParam param, int delayMillis, Rectangle region)
+			throws IIOInvalidTreeException {
+		IIOMetadata metadata = writer.getDefaultImageMetadata(imageTypeSpecifier, param);
 		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+		if (region != null) { // root -> ImageDescriptor
+			IIOMetadataNode node = child(root, "ImageDescriptor");
+			node.setAttribute("imageLeftPosition", Integer.toString(region.x));
+			node.setAttribute("imageTopPosition", Integer.toString(region.y));
+			node.setAttribute("imageWidth", Integer.toString(region.width));
+			node.setAttribute("imageHeight", Integer.toString(region.height));
+		}
 		{ // root -> GraphicControlExtension
 			IIOMetadataNode node = child(root, "GraphicControlExtension");
-			node.setAttribute("disposalMethod", "restoreToBackgroundColor");
+			node.setAttribute("disposalMethod", "doNotDispose");
 			node.setAttribute("userInputFlag", Boolean.FALSE.toString());
 			node.setAttribute("transparentColorFlag", Boolean.FALSE.toString());
 			node.setAttribute("delayTime", Integer.toString(delayMillis / 10)); // 1/100 sec!
@@ -228,6 +642,7 @@ public class GifRecorder implements AutoCloseable {
 			node.setUserObject(new byte[] { 0x1, (byte) (loopBits & 0xFF), (byte) ((loopBits >> 8) & 0xFF) });
 		}
 		metadata.setFromTree(metadata.getNativeMetadataFormatName(), root);
+		return metadata;
 	}
 
 	private static IIOMetadataNode child(IIOMetadataNode node, String childName) {
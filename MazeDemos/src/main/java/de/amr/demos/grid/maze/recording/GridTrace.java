@@ -0,0 +1,120 @@
+package de.amr.demos.grid.maze.recording;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.Grid8Topology;
+
+/**
+ * Binary format of grid event traces, see {@link TraceRecorder} and {@link TraceReplayer}.
+ * <p>
+ * A trace starts with a header (big endian):
+ *
+ * <pre>
+ * int    magic number "MTRC"
+ * byte   format version
+ * byte   topology (4 or 8 neighbors)
+ * varint number of columns
+ * varint number of rows
+ * </pre>
+ *
+ * followed by the events, the first one always being a snapshot of the grid. Each event starts with the varint
+ * {@code zigzag(cell - previousCell) << 2 | kind}, where the previous cell is the cell of the last vertex event or the
+ * second cell of the last edge event. Generators mostly work on neighbor cells, so this usually takes one or two bytes.
+ *
+ * <pre>
+ * VERTEX       byte new state ordinal
+ * EDGE_ADDED   byte direction from the cell to the other cell of the edge
+ * EDGE_REMOVED byte direction from the cell to the other cell of the edge
+ * SNAPSHOT     cell states as runs (varint run length, byte state ordinal) covering all cells,
+ *              varint number of edges, each edge as (varint zigzag(cell - previous edge cell), byte direction)
+ * </pre>
+ *
+ * A snapshot replaces the complete grid content. It is written when the recording starts and for each
+ * {@code graphChanged} event. Varints store 7 bits per byte, least significant group first.
+ * <p>
+ * Only the edges and the cell states are traced, not the edge labels.
+ *
+ * @author Armin Reichert
+ */
+public class GridTrace {
+
+	public static final String EXTENSION = "trace";
+
+	static final int MAGIC = 0x4D545243; // "MTRC"
+	static final int VERSION = 1;
+
+	static final int VERTEX = 0, EDGE_ADDED = 1, EDGE_REMOVED = 2, SNAPSHOT = 3;
+
+	private GridTrace() {
+	}
+
+	static GridTopology topology(int numNeighbors) throws IOException {
+		return switch (numNeighbors) {
+		case 4 -> Grid4Topology.get();
+		case 8 -> Grid8Topology.get();
+		default -> throw new IOException("Unsupported grid topology: %d neighbors".formatted(numNeighbors));
+		};
+	}
+
+	// direction from the first to the second cell, the cells must be neighbors
+	static int direction(GridGraph2D<?, ?> grid, int either, int other) {
+		GridTopology topology = grid.getTopology();
+		int dx = grid.col(other) - grid.col(either), dy = grid.row(other) - grid.row(either);
+		for (int dir = 0; dir < topology.dirCount(); ++dir) {
+			if (topology.dx(dir) == dx && topology.dy(dir) == dy) {
+				return dir;
+			}
+		}
+		throw new IllegalArgumentException("Cells %d and %d are no neighbors".formatted(either, other));
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static void writeVarint(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarint(DataInput in) throws IOException {
+		return readVarint(in, 0, 0);
+	}
+
+	// continues reading a varint whose low bits are already read
+	private static long readVarint(DataInput in, long value, int shift) throws IOException {
+		for (; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	/*
+	 * Like readVarint() but returns -1 at the end of the trace. The trace may only end before the first byte of a token,
+	 * an end inside of a token throws an EOFException.
+	 */
+	static long readEventToken(DataInputStream in) throws IOException {
+		int first = in.read();
+		if (first == -1) {
+			return -1;
+		}
+		return (first & 0x80) == 0 ? first : readVarint(in, first & 0x7F, 7);
+	}
+}
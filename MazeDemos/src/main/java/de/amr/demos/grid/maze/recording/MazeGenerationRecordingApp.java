@@ -1,5 +1,8 @@
 package de.amr.demos.grid.maze.recording;
 
+import de.amr.demos.maze.common.ApngRecorder;
+import de.amr.demos.maze.common.FrameRecorder;
+import de.amr.demos.maze.common.IndexedPalette;
 import de.amr.graph.core.api.ObservableGraph;
 import de.amr.graph.core.api.TraversalState;
 import de.amr.graph.event.EdgeEvent;
@@ -19,23 +22,49 @@ import de.amr.maze.alg.mst.PrimMST;
 import de.amr.maze.alg.others.*;
 import de.amr.maze.alg.traversal.*;
 import de.amr.maze.alg.ust.*;
+import de.amr.util.StopWatch;
 
-import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static de.amr.graph.core.api.TraversalState.UNVISITED;
 
 /**
- * Runs maze generation algorithms and saves the mazes as animated GIF images.
+ * Runs maze generation algorithms and saves the mazes as animated GIF or PNG (APNG) images, the format is given by the
+ * first program argument ("gif" or "apng", default "gif"). The generators run in parallel and only
+ * record event traces, the traces are then rendered offline by replaying them into a grid canvas, and the GIF encoding
+ * runs on its own thread pool. The traces are kept, so a recording can be rendered again in another style.
  * 
  * @author Armin Reichert
  */
 public class MazeGenerationRecordingApp {
 
 	private static final File IMAGE_PATH = new File(System.getProperty("user.dir") + "/images/gen");
-	private static final String IMAGE_NAME = "maze_%dx%d_%s.gif";
+	private static final String IMAGE_NAME = "maze_%dx%d_%s.%s";
+	private static final File TRACE_PATH = new File(IMAGE_PATH, "traces");
+	private static final String TRACE_NAME = "maze_%dx%d_%s." + GridTrace.EXTENSION;
+	private static final int ENCODER_QUEUE_CAPACITY = 32;
+	// cell state changes and passage events, the recorder adapts if this is too low
+	private static final int EXPECTED_REQUESTS_PER_CELL = 3;
+
+	private enum Format {
+		GIF("gif"), APNG("png");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+	}
 
 	private static final Class<?>[] HANDSOME_GENERATORS = {
 		/*@formatter:off*/
@@ -74,46 +103,123 @@ public class MazeGenerationRecordingApp {
 	};
 
 	public static void main(String[] args) {
-		int numCols = 80, numRows = 60, cellSize = 4, scanRate = 80, delayMillis = 50;
-		run(numCols, numRows, cellSize, scanRate, delayMillis, HANDSOME_GENERATORS);
-		// run(40, 30, 8, scanRate, delayMillis, RecursiveDFS.class);
-		// run(8, 8, 16, 3, 40, AldousBroderUST.class);
-		// run(numCols, numRows, cellSize, scanRate, delayMillis, ReverseDeleteMST_DFS.class);
-		// run(numCols, numRows, 2, 10, 80, RecursiveDivision.class);
+		Format format = args.length > 0 ? Format.valueOf(args[0].toUpperCase()) : Format.GIF;
+		int numCols = 80, numRows = 60, cellSize = 4, durationMillis = 10_000, delayMillis = 50;
+		run(format, numCols, numRows, cellSize, durationMillis, delayMillis, HANDSOME_GENERATORS);
+		// run(format, 40, 30, 8, durationMillis, delayMillis, RecursiveDFS.class);
+		// run(format, 8, 8, 16, 20_000, 40, AldousBroderUST.class);
+		// run(format, numCols, numRows, cellSize, durationMillis, delayMillis, ReverseDeleteMST_DFS.class);
+		// run(format, numCols, numRows, 2, 20_000, 80, RecursiveDivision.class);
 	}
 
-	private static void run(int numCols, int numRows, int cellSize, int scanRate, int delayMillis,
+	/*
+	 * Records the generators in parallel. Generation and tracing run on one pool, replaying the traces and capturing the
+	 * frames on a second one and the GIF encoding on a third one. Each GIF recorder lets its captured frames be encoded
+	 * in parallel on the encoder pool, the number of frames in flight per recorder is bounded. APNG frames are compressed
+	 * while they are captured.
+	 */
+	private static void run(Format format, int numCols, int numRows, int cellSize, int durationMillis, int delayMillis,
 			Class<?>... generatorClasses) {
-		for (Class<?> generatorClass : generatorClasses) {
-			JFrame window = new JFrame();
-			try {
-				GridGraph2D<TraversalState, Integer> grid = GridFactory.emptyObservableGrid(numCols, numRows,
-						Grid4Topology.get(), UNVISITED, 0);
-				GridCanvas canvas = new GridCanvas(grid, cellSize);
-				canvas.pushRenderer(createRenderer((ObservableGridGraph2D<TraversalState, Integer>) grid, cellSize));
-				canvas.drawGrid();
-				window.getContentPane().add(canvas);
-				window.pack();
-				window.setLocationRelativeTo(null);
-				window.setTitle(generatorClass.getSimpleName());
-				window.setVisible(true);
-				try (GifRecorder recorder = new GifRecorder(canvas.getDrawingBuffer().getType())) {
-					attach(recorder, (ObservableGridGraph2D<TraversalState, Integer>) grid, canvas);
-					recorder.setDelayMillis(delayMillis);
-					recorder.setEndDelayMillis(2000); // 2 seconds before loop
-					recorder.setLoop(true);
-					recorder.setScanRate(scanRate);
-					recorder.start(IMAGE_PATH,
-							String.format(IMAGE_NAME, grid.numCols(), grid.numRows(), generatorClass.getSimpleName()));
-					MazeGenerator generator = (MazeGenerator) generatorClass.getConstructor(GridGraph2D.class)
-							.newInstance(grid);
-					generator.createMaze(0, 0);
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		StopWatch watch = new StopWatch();
+		watch.start();
+		List<CompletableFuture<Void>> recordings = new ArrayList<>();
+		try (ExecutorService encoders = Executors.newFixedThreadPool(numThreads)) {
+			try (ExecutorService renderers = Executors.newFixedThreadPool(numThreads)) {
+				try (ExecutorService generators = Executors.newFixedThreadPool(numThreads)) {
+					for (Class<?> generatorClass : generatorClasses) {
+						/*@formatter:off*/
+						recordings.add(CompletableFuture
+							.supplyAsync(() -> trace(generatorClass, numCols, numRows), generators)
+							.thenComposeAsync(traceFile -> render(traceFile, generatorClass, format, cellSize, durationMillis, delayMillis, encoders), renderers)
+							.exceptionally(x -> {
+								x.printStackTrace();
+								return null;
+							}));
+						/*@formatter:on*/
+					}
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			} finally {
-				window.dispose();
+				CompletableFuture.allOf(recordings.toArray(CompletableFuture[]::new)).join();
+			}
+		}
+		watch.stop();
+		System.out.println(String.format("%d recordings created in %.2f seconds using %d threads", generatorClasses.length,
+				watch.getSeconds(), numThreads));
+	}
+
+	/*
+	 * Runs the generator on a grid without any rendering and records the grid events into a trace file.
+	 */
+	private static File trace(Class<?> generatorClass, int numCols, int numRows) {
+		ObservableGridGraph2D<TraversalState, Integer> grid = GridFactory.emptyObservableGrid(numCols, numRows,
+				Grid4Topology.get(), UNVISITED, 0);
+		TRACE_PATH.mkdirs();
+		File traceFile = new File(TRACE_PATH, String.format(TRACE_NAME, numCols, numRows, generatorClass.getSimpleName()));
+		StopWatch watch = new StopWatch();
+		long numEvents;
+		try (TraceRecorder tracer = new TraceRecorder(grid, traceFile)) {
+			MazeGenerator generator = (MazeGenerator) generatorClass.getConstructor(GridGraph2D.class).newInstance(grid);
+			watch.measure(() -> generator.createMaze(0, 0));
+			numEvents = tracer.getNumEvents();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create generator " + generatorClass.getSimpleName(), e);
+		}
+		System.out.println(String.format("%s: %d events traced in %.0f ms, %d bytes", generatorClass.getSimpleName(),
+				numEvents, watch.getMillis(), traceFile.length()));
+		return traceFile;
+	}
+
+	/*
+	 * Replays the trace into a grid canvas and records the canvas as animated GIF or PNG.
+	 */
+	private static CompletableFuture<Void> render(File traceFile, Class<?> generatorClass, Format format, int cellSize,
+			int durationMillis, int delayMillis, Executor encoder) {
+		try (TraceReplayer replayer = new TraceReplayer(traceFile)) {
+			ObservableGridGraph2D<TraversalState, Integer> grid = replayer.getGrid();
+			GridCanvas canvas = new GridCanvas(grid, cellSize);
+			canvas.pushRenderer(createRenderer(grid, cellSize));
+			canvas.drawGrid();
+			// initial grid colors and cell colors of the renderer
+			Optional<IndexedPalette> palette = IndexedPalette.fromImage(canvas.getDrawingBuffer(), Color.WHITE, Color.BLUE,
+					Color.BLACK);
+			int expectedRequests = EXPECTED_REQUESTS_PER_CELL * grid.numVertices();
+			String fileName = String.format(IMAGE_NAME, grid.numCols(), grid.numRows(), generatorClass.getSimpleName(),
+					format.extension);
+			FrameRecorder recorder = switch (format) {
+			case GIF -> {
+				GifRecorder gif = new GifRecorder(canvas.getDrawingBuffer().getType());
+				gif.setEncoder(encoder, ENCODER_QUEUE_CAPACITY);
+				// long recordings would otherwise be encoded by a single thread at the end of the run
+				gif.setParallelEncoding(true);
+				palette.ifPresent(gif::setPalette);
+				gif.setDelayMillis(delayMillis);
+				gif.setEndDelayMillis(2000); // 2 seconds before loop
+				gif.setLoop(true);
+				gif.setTargetDuration(durationMillis, expectedRequests);
+				gif.start(IMAGE_PATH, fileName);
+				yield gif;
+			}
+			case APNG -> {
+				ApngRecorder apng = new ApngRecorder();
+				palette.ifPresent(apng::setPalette);
+				apng.setDelayMillis(delayMillis);
+				apng.setEndDelayMillis(2000); // 2 seconds before loop
+				apng.setLoop(true);
+				apng.setTargetDuration(durationMillis, expectedRequests);
+				apng.start(IMAGE_PATH, fileName);
+				yield apng;
 			}
+			};
+			try (recorder) {
+				replayer.replay(createObserver(recorder, grid, canvas));
+			}
+			File imageFile = new File(IMAGE_PATH, fileName);
+			return recorder.getCompletion().thenRun(() -> System.out.println(String.format("%s: %d frames, %d bytes per frame",
+					fileName, recorder.getFramesWritten(), imageFile.length() / Math.max(1, recorder.getFramesWritten()))));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
@@ -135,47 +241,50 @@ public class MazeGenerationRecordingApp {
 		return renderer;
 	}
 
-	// TODO why is there this 1 pixel offset?
-	private static BufferedImage fixImage(GridCanvas canvas) {
-		BufferedImage img = new BufferedImage(canvas.getWidth() + 1, canvas.getHeight() + 1,
-				canvas.getDrawingBuffer().getType());
-		img.getGraphics().drawImage(canvas.getDrawingBuffer(), 0, 0, null);
-		return img;
+	// area of the canvas covered by the given cell
+	private static Rectangle cellArea(GridGraph2D<?, ?> grid, GridCanvas canvas, int cell) {
+		int cellSize = canvas.getCellSize();
+		return new Rectangle(grid.col(cell) * cellSize, grid.row(cell) * cellSize, cellSize, cellSize);
+	}
+
+	// area of the canvas covered by the passage between the given cells
+	private static Rectangle passageArea(GridGraph2D<?, ?> grid, GridCanvas canvas, int either, int other) {
+		return cellArea(grid, canvas, either).union(cellArea(grid, canvas, other));
 	}
 
-	private static void attach(GifRecorder recorder, ObservableGridGraph2D<TraversalState, Integer> grid,
-			GridCanvas canvas) {
-		grid.addGraphObserver(new GraphObserver<TraversalState, Integer>() {
+	private static GraphObserver<TraversalState, Integer> createObserver(FrameRecorder recorder,
+			ObservableGridGraph2D<TraversalState, Integer> grid, GridCanvas canvas) {
+		return new GraphObserver<TraversalState, Integer>() {
 
 			@Override
 			public void vertexChanged(VertexEvent<TraversalState, Integer> event) {
 				canvas.drawGridCell(event.getVertex());
-				recorder.requestFrame(fixImage(canvas));
+				recorder.requestFrame(canvas.getDrawingBuffer(), cellArea(grid, canvas, event.getVertex()));
 			}
 
 			@Override
 			public void graphChanged(ObservableGraph<TraversalState, Integer> graph) {
 				canvas.drawGrid();
-				recorder.requestFrame(fixImage(canvas));
+				recorder.requestFrame(canvas.getDrawingBuffer());
 			}
 
 			@Override
 			public void edgeRemoved(EdgeEvent<TraversalState, Integer> event) {
 				canvas.drawGridPassage(event.getEither(), event.getOther(), false);
-				recorder.requestFrame(fixImage(canvas));
+				recorder.requestFrame(canvas.getDrawingBuffer(), passageArea(grid, canvas, event.getEither(), event.getOther()));
 			}
 
 			@Override
 			public void edgeChanged(EdgeEvent<TraversalState, Integer> event) {
 				canvas.drawGridPassage(event.getEither(), event.getOther(), true);
-				recorder.requestFrame(fixImage(canvas));
+				recorder.requestFrame(canvas.getDrawingBuffer(), passageArea(grid, canvas, event.getEither(), event.getOther()));
 			}
 
 			@Override
 			public void edgeAdded(EdgeEvent<TraversalState, Integer> event) {
 				canvas.drawGridPassage(event.getEither(), event.getOther(), true);
-				recorder.requestFrame(fixImage(canvas));
+				recorder.requestFrame(canvas.getDrawingBuffer(), passageArea(grid, canvas, event.getEither(), event.getOther()));
 			}
-		});
+		};
 	}
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package de.amr.demos.grid.maze.recording;
+
+import static de.amr.demos.grid.maze.recording.GridTrace.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+import de.amr.graph.core.api.Edge;
+import de.amr.graph.core.api.ObservableGraph;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.event.EdgeEvent;
+import de.amr.graph.event.GraphObserver;
+import de.amr.graph.event.VertexEvent;
+import de.amr.graph.grid.api.ObservableGridGraph2D;
+
+/**
+ * Records the events of an observable grid into a compact binary trace file (see {@link GridTrace}). Nothing is
+ * rendered while recording, each event just appends a few bytes to a buffered stream, so the traced algorithm runs at
+ * almost full speed. The trace can be rendered later by a {@link TraceReplayer}.
+ * <p>
+ * The recorder is attached to the grid when it is created and detached when it is closed. Events must be fired by one
+ * thread.
+ *
+ * @author Armin Reichert
+ */
+public class TraceRecorder implements GraphObserver<TraversalState, Integer>, AutoCloseable {
+
+	private final ObservableGridGraph2D<TraversalState, Integer> grid;
+	private final DataOutputStream out;
+	private int previousCell;
+	private long numEvents;
+
+	/**
+	 * Creates a trace file for the given grid, writes a snapshot of the current grid content and starts recording its
+	 * events.
+	 *
+	 * @param grid
+	 *               grid with 4- or 8-neighbor topology
+	 * @param file
+	 *               trace file, an existing file is overwritten
+	 * @throws IOException
+	 *                       if the file could not be created
+	 */
+	public TraceRecorder(ObservableGridGraph2D<TraversalState, Integer> grid, File file) throws IOException {
+		int numNeighbors = grid.getTopology().dirCount();
+		if (numNeighbors != 4 && numNeighbors != 8) {
+			throw new IllegalArgumentException("Unsupported grid topology: " + grid.getTopology());
+		}
+		this.grid = grid;
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(numNeighbors);
+		writeVarint(out, grid.numCols());
+		writeVarint(out, grid.numRows());
+		writeSnapshot();
+		grid.addGraphObserver(this);
+	}
+
+	/**
+	 * @return number of recorded events including the snapshots
+	 */
+	public long getNumEvents() {
+		return numEvents;
+	}
+
+	/**
+	 * Stops recording and closes the trace file.
+	 */
+	@Override
+	public void close() throws IOException {
+		grid.removeGraphObserver(this);
+		out.close();
+	}
+
+	@Override
+	public void vertexChanged(VertexEvent<TraversalState, Integer> event) {
+		try {
+			writeToken(event.getVertex(), VERTEX);
+			out.writeByte(event.getNewValue().ordinal());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void edgeAdded(EdgeEvent<TraversalState, Integer> event) {
+		writeEdge(event.getEither(), event.getOther(), EDGE_ADDED);
+	}
+
+	@Override
+	public void edgeRemoved(EdgeEvent<TraversalState, Integer> event) {
+		writeEdge(event.getEither(), event.getOther(), EDGE_REMOVED);
+	}
+
+	@Override
+	public void edgeChanged(EdgeEvent<TraversalState, Integer> event) {
+		// edge labels are not traced
+	}
+
+	@Override
+	public void graphChanged(ObservableGraph<TraversalState, Integer> graph) {
+		try {
+			writeSnapshot();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeToken(int cell, int kind) throws IOException {
+		writeVarint(out, zigzag((long) cell - previousCell) << 2 | kind);
+		previousCell = cell;
+		++numEvents;
+	}
+
+	private void writeEdge(int either, int other, int kind) {
+		try {
+			writeToken(either, kind);
+			out.writeByte(direction(grid, either, other));
+			previousCell = other;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeSnapshot() throws IOException {
+		writeToken(previousCell, SNAPSHOT);
+		int numCells = grid.numVertices();
+		for (int cell = 0; cell < numCells;) {
+			TraversalState state = grid.get(cell);
+			int runStart = cell;
+			while (cell < numCells && grid.get(cell) == state) {
+				++cell;
+			}
+			writeVarint(out, cell - runStart);
+			out.writeByte(state.ordinal());
+		}
+		writeVarint(out, grid.numEdges());
+		int previousEdgeCell = 0;
+		for (Iterator<Edge> edges = grid.edges().iterator(); edges.hasNext();) {
+			Edge edge = edges.next();
+			writeVarint(out, zigzag((long) edge.either() - previousEdgeCell));
+			out.writeByte(direction(grid, edge.either(), edge.other()));
+			previousEdgeCell = edge.either();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package de.amr.demos.grid.maze.recording;
+
+import static de.amr.demos.grid.maze.recording.GridTrace.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.event.GraphObserver;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.api.ObservableGridGraph2D;
+import de.amr.graph.grid.impl.GridFactory;
+
+/**
+ * Replays a trace recorded by a {@link TraceRecorder}. The events are applied to a new observable grid, so any grid
+ * observer, e.g. one drawing into a {@code GridCanvas} and requesting frames from a {@link GifRecorder}, sees them like
+ * when the trace was recorded.
+ * <p>
+ * Snapshots are applied while the observer is detached, the observer then gets a single {@code graphChanged} event.
+ * <p>
+ * By default the events are replayed as fast as possible, e.g. for rendering a GIF offline. For a live view, the
+ * replay can be slowed down to a given number of events per second.
+ *
+ * <pre>
+ * try (var replayer = new TraceReplayer(traceFile)) {
+ * 	GridCanvas canvas = new GridCanvas(replayer.getGrid(), cellSize);
+ * 	...
+ * 	replayer.replay(observer);
+ * }
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+public class TraceReplayer implements AutoCloseable {
+
+	private static final TraversalState[] STATES = TraversalState.values();
+
+	private final DataInputStream in;
+	private final ObservableGridGraph2D<TraversalState, Integer> grid;
+	private final GridTopology topology;
+	private double eventsPerSecond;
+	private int previousCell;
+	private long numEvents;
+
+	/**
+	 * Opens a trace file and creates the grid for replaying it.
+	 *
+	 * @param file
+	 *               trace file
+	 * @throws IOException
+	 *                       if the file could not be read or is not a trace file
+	 */
+	public TraceReplayer(File file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a trace file: " + file);
+			}
+			int version = in.readUnsignedByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported trace file version: " + version);
+			}
+			topology = GridTrace.topology(in.readUnsignedByte());
+			long numCols = readVarint(in), numRows = readVarint(in);
+			if (numCols < 1 || numRows < 1 || numCols * numRows > Integer.MAX_VALUE) {
+				throw new IOException("Illegal grid size %dx%d".formatted(numCols, numRows));
+			}
+			grid = GridFactory.emptyObservableGrid((int) numCols, (int) numRows, topology, TraversalState.UNVISITED, 0);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the grid where the events are replayed, initially empty
+	 */
+	public ObservableGridGraph2D<TraversalState, Integer> getGrid() {
+		return grid;
+	}
+
+	/**
+	 * @return number of replayed events including the snapshots
+	 */
+	public long getNumEvents() {
+		return numEvents;
+	}
+
+	/**
+	 * Sets the replay speed.
+	 *
+	 * @param eventsPerSecond
+	 *                          number of events replayed per second or 0 for replaying as fast as possible
+	 */
+	public void setEventsPerSecond(double eventsPerSecond) {
+		if (eventsPerSecond < 0) {
+			throw new IllegalArgumentException("Replay speed must not be negative: " + eventsPerSecond);
+		}
+		this.eventsPerSecond = eventsPerSecond;
+	}
+
+	/**
+	 * Replays the remaining events of the trace.
+	 *
+	 * @param observer
+	 *                   observer getting the events, attached to the grid during the replay
+	 * @throws IOException
+	 *                       if the trace could not be read, is corrupt or truncated
+	 */
+	public void replay(GraphObserver<TraversalState, Integer> observer) throws IOException {
+		grid.addGraphObserver(observer);
+		try {
+			long startTime = System.nanoTime(), replayed = 0;
+			long token;
+			while ((token = readEventToken(in)) != -1) {
+				int cell = cell(previousCell + unzigzag(token >>> 2));
+				switch ((int) (token & 3)) {
+				case VERTEX -> {
+					grid.set(cell, state(in.readUnsignedByte()));
+					previousCell = cell;
+				}
+				case EDGE_ADDED -> grid.addEdge(cell, previousCell = neighbor(cell, in.readUnsignedByte()));
+				case EDGE_REMOVED -> grid.removeEdge(cell, previousCell = neighbor(cell, in.readUnsignedByte()));
+				case SNAPSHOT -> {
+					grid.removeGraphObserver(observer);
+					readSnapshot();
+					grid.addGraphObserver(observer);
+					observer.graphChanged(grid);
+				}
+				}
+				++numEvents;
+				if (eventsPerSecond > 0) {
+					long dueTime = startTime + (long) (++replayed * 1e9 / eventsPerSecond);
+					LockSupport.parkNanos(dueTime - System.nanoTime());
+				}
+			}
+		} catch (EOFException e) {
+			// a clean end of the trace is reported by readEventToken(), so this end is inside of an event
+			throw new IOException("Truncated trace", e);
+		} finally {
+			grid.removeGraphObserver(observer);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void readSnapshot() throws IOException {
+		int numCells = grid.numVertices();
+		for (int cell = 0; cell < numCells;) {
+			long runLength = readVarint(in);
+			TraversalState state = state(in.readUnsignedByte());
+			if (runLength < 1 || runLength > numCells - cell) {
+				throw new IOException("Corrupt snapshot at cell " + cell);
+			}
+			for (long i = 0; i < runLength; ++i) {
+				grid.set(cell++, state);
+			}
+		}
+		grid.removeEdges();
+		long numEdges = readVarint(in);
+		int edgeCell = 0;
+		for (long i = 0; i < numEdges; ++i) {
+			edgeCell = cell(edgeCell + unzigzag(readVarint(in)));
+			grid.addEdge(edgeCell, neighbor(edgeCell, in.readUnsignedByte()));
+		}
+	}
+
+	private int cell(long cell) throws IOException {
+		if (cell < 0 || cell >= grid.numVertices()) {
+			throw new IOException("Cell index out of range: " + cell);
+		}
+		return (int) cell;
+	}
+
+	private int neighbor(int cell, int dir) throws IOException {
+		if (dir >= topology.dirCount()) {
+			throw new IOException("Illegal direction %d at cell %d".formatted(dir, cell));
+		}
+		int col = grid.col(cell) + topology.dx(dir), row = grid.row(cell) + topology.dy(dir);
+		if (col < 0 || col >= grid.numCols() || row < 0 || row >= grid.numRows()) {
+			throw new IOException("Edge leaves the grid at cell " + cell);
+		}
+		return grid.cell(col, row);
+	}
+
+	private static TraversalState state(int ordinal) throws IOException {
+		if (ordinal >= STATES.length) {
+			throw new IOException("Illegal traversal state: " + ordinal);
+		}
+		return STATES[ordinal];
+	}
+}
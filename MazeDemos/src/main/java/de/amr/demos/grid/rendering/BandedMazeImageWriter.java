@@ -0,0 +1,261 @@
+package de.amr.demos.grid.rendering;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.tinylog.Logger;
+
+import de.amr.demos.maze.common.IndexedPalette;
+import de.amr.demos.maze.common.MazeGrid;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.api.GridTopology;
+import de.amr.graph.grid.ui.rendering.ConfigurableGridRenderer;
+
+/**
+ * Writes a maze as PNG image without creating the complete image in memory. The maze is rendered in horizontal bands
+ * of grid rows which are streamed to a {@link PngWriter}, so the memory needed only depends on the image width and
+ * the band height.
+ * <p>
+ * The bands are drawn like by a {@link de.amr.graph.grid.ui.rendering.WallPassageGridRenderer} using the color and
+ * size functions of the given renderer: the grid background shows the walls, each cell is a square of the passage
+ * width, and each passage connects the squares of its cells. Only grids with 4-neighbor topology are supported.
+ * <p>
+ * Instead of using a renderer, a maze can be rendered using fixed sizes and colors. Then the bands are 1-bit images
+ * rendered by a {@link BinaryMazeRaster}, which is much faster and needs much less memory. This way, also a
+ * {@link MazeGrid} can be rendered, which can be much larger than the Java heap, e.g. an
+ * {@link de.amr.demos.maze.common.OffHeapGrid} mapping a maze file.
+ *
+ * @author Armin Reichert
+ */
+public class BandedMazeImageWriter {
+
+	private final GridGraph2D<?, ?> grid;
+	private final ConfigurableGridRenderer renderer;
+	private final BinaryMazeRaster raster;
+	private final MazeStyle style;
+	private final int numCols;
+	private final int numRows;
+	private final int bandRows;
+	private final int dirEast;
+	private final int dirSouth;
+
+	/**
+	 * Sizes and colors used for rendering a maze without renderer.
+	 */
+	public record MazeStyle(int cellSize, int passageWidth, Color wallColor, Color passageColor) {
+
+		public MazeStyle {
+			if (passageWidth < 1 || passageWidth > cellSize) {
+				throw new IllegalArgumentException("Illegal passage width %d for cell size %d".formatted(passageWidth,
+						cellSize));
+			}
+		}
+	}
+
+	/**
+	 * @param grid
+	 *                   the maze
+	 * @param renderer
+	 *                   renderer providing cell size, passage width and colors
+	 * @param bandRows
+	 *                   number of grid rows rendered at once
+	 */
+	public BandedMazeImageWriter(GridGraph2D<?, ?> grid, ConfigurableGridRenderer renderer, int bandRows) {
+		if (grid.getTopology().dirCount() != 4) {
+			throw new IllegalArgumentException("Only grids with 4-neighbor topology are supported");
+		}
+		if (bandRows < 1) {
+			throw new IllegalArgumentException("Band must have at least one row but has " + bandRows);
+		}
+		this.grid = grid;
+		this.renderer = renderer;
+		this.raster = null;
+		this.style = null;
+		this.numCols = grid.numCols();
+		this.numRows = grid.numRows();
+		this.bandRows = bandRows;
+		dirEast = direction(grid.getTopology(), 1, 0);
+		dirSouth = direction(grid.getTopology(), 0, 1);
+	}
+
+	/**
+	 * @param maze
+	 *                   the maze
+	 * @param style
+	 *                   cell size, passage width and colors
+	 * @param bandRows
+	 *                   number of grid rows rendered at once
+	 */
+	public BandedMazeImageWriter(MazeGrid maze, MazeStyle style, int bandRows) {
+		this(new BinaryMazeRaster(maze, style), style, maze.numCols(), maze.numRows(), bandRows);
+	}
+
+	/**
+	 * @param grid
+	 *                   the maze
+	 * @param style
+	 *                   cell size, passage width and colors
+	 * @param bandRows
+	 *                   number of grid rows rendered at once
+	 */
+	public BandedMazeImageWriter(GridGraph2D<?, ?> grid, MazeStyle style, int bandRows) {
+		this(new BinaryMazeRaster(grid, style), style, grid.numCols(), grid.numRows(), bandRows);
+	}
+
+	private BandedMazeImageWriter(BinaryMazeRaster raster, MazeStyle style, int numCols, int numRows, int bandRows) {
+		if (bandRows < 1) {
+			throw new IllegalArgumentException("Band must have at least one row but has " + bandRows);
+		}
+		this.grid = null;
+		this.renderer = null;
+		this.raster = raster;
+		this.style = style;
+		this.numCols = numCols;
+		this.numRows = numRows;
+		this.bandRows = bandRows;
+		dirEast = -1;
+		dirSouth = -1;
+	}
+
+	private static int direction(GridTopology topology, int dx, int dy) {
+		for (int dir = 0; dir < topology.dirCount(); ++dir) {
+			if (topology.dx(dir) == dx && topology.dy(dir) == dy) {
+				return dir;
+			}
+		}
+		throw new IllegalArgumentException("Grid topology has no direction (%d,%d)".formatted(dx, dy));
+	}
+
+	private int cellSize() {
+		return renderer != null ? renderer.getCellSize() : style.cellSize();
+	}
+
+	public int getImageWidth() {
+		return Math.multiplyExact(numCols, cellSize());
+	}
+
+	public int getImageHeight() {
+		return Math.multiplyExact(numRows, cellSize());
+	}
+
+	/**
+	 * Writes the maze image to the given file.
+	 *
+	 * @param file
+	 *                  PNG file
+	 * @param indexed
+	 *                  if the image should be stored with a palette, only possible if the maze uses at most
+	 *                  {@link IndexedPalette#MAX_COLORS} colors. Without renderer, the image is then stored with 1 bit
+	 *                  per pixel.
+	 * @throws IOException
+	 *                       if writing fails
+	 */
+	public void write(File file, boolean indexed) throws IOException {
+		IndexedPalette palette = indexed ? createPalette().orElse(null) : null;
+		if (indexed && palette == null) {
+			Logger.warn(() -> "Maze has more than %d colors, storing full-color image".formatted(IndexedPalette.MAX_COLORS));
+		}
+		if (raster != null) {
+			writeBinaryBands(file, palette);
+			return;
+		}
+		int cellSize = cellSize();
+		int width = getImageWidth(), height = getImageHeight();
+		BufferedImage band = new BufferedImage(width, bandRows * cellSize, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = band.createGraphics();
+		try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16), width, height,
+				palette)) {
+			for (int firstRow = 0; firstRow < numRows; firstRow += bandRows) {
+				int bandHeight = Math.min(bandRows, numRows - firstRow);
+				drawBand(g, firstRow, bandHeight);
+				png.writeRows(band, 0, bandHeight * cellSize);
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private void writeBinaryBands(File file, IndexedPalette palette) throws IOException {
+		BufferedImage band = raster.createBand(bandRows);
+		try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16),
+				getImageWidth(), getImageHeight(), palette)) {
+			for (int firstRow = 0; firstRow < numRows; firstRow += bandRows) {
+				int bandHeight = Math.min(bandRows, numRows - firstRow);
+				raster.render(band, firstRow, bandHeight);
+				png.writeRows(band, 0, bandHeight * style.cellSize());
+			}
+		}
+	}
+
+	/*
+	 * Draws the given grid rows into the band image. Passages of the rows above and below reach into the band, so these
+	 * rows are drawn too and clipped at the band border.
+	 */
+	private void drawBand(Graphics2D g, int firstRow, int bandHeight) {
+		int cellSize = cellSize();
+		g.setColor(renderer.getGridBgColor());
+		g.fillRect(0, 0, getImageWidth(), bandRows * cellSize);
+		int fromRow = Math.max(0, firstRow - 1), toRow = Math.min(numRows - 1, firstRow + bandHeight);
+		for (int row = fromRow; row <= toRow; ++row) {
+			int y = (row - firstRow) * cellSize;
+			for (int col = 0; col < numCols; ++col) {
+				drawCell(g, grid.cell(col, row), col * cellSize, y);
+			}
+		}
+	}
+
+	private void drawCell(Graphics2D g, int cell, int x, int y) {
+		int cellSize = renderer.getCellSize();
+		int col = grid.col(cell), row = grid.row(cell);
+		if (col + 1 < grid.numCols()) {
+			int east = grid.cell(col + 1, row);
+			if (grid.adjacent(cell, east)) {
+				int passageWidth = renderer.fnPassageWidth.apply(cell, east);
+				int inset = (cellSize - passageWidth) / 2;
+				g.setColor(renderer.fnPassageColor.apply(cell, dirEast));
+				g.fillRect(x + inset + passageWidth, y + inset, cellSize - passageWidth, passageWidth);
+			}
+		}
+		if (row + 1 < grid.numRows()) {
+			int south = grid.cell(col, row + 1);
+			if (grid.adjacent(cell, south)) {
+				int passageWidth = renderer.fnPassageWidth.apply(cell, south);
+				int inset = (cellSize - passageWidth) / 2;
+				g.setColor(renderer.fnPassageColor.apply(cell, dirSouth));
+				g.fillRect(x + inset, y + inset + passageWidth, passageWidth, cellSize - passageWidth);
+			}
+		}
+		int cellWidth = renderer.fnPassageWidth.apply(cell, cell);
+		int inset = (cellSize - cellWidth) / 2;
+		g.setColor(renderer.getCellBgColor(cell));
+		g.fillRect(x + inset, y + inset, cellWidth, cellWidth);
+	}
+
+	/*
+	 * Collects the colors used by the renderer for the maze, stops as soon as there are too many for a palette.
+	 */
+	private Optional<IndexedPalette> createPalette() {
+		if (raster != null) {
+			return Optional.of(raster.getPalette());
+		}
+		Set<Color> colors = new LinkedHashSet<>();
+		colors.add(renderer.getGridBgColor());
+		for (int cell = 0; cell < grid.numVertices(); ++cell) {
+			colors.add(renderer.getCellBgColor(cell));
+			colors.add(renderer.fnPassageColor.apply(cell, dirEast));
+			colors.add(renderer.fnPassageColor.apply(cell, dirSouth));
+			if (colors.size() > IndexedPalette.MAX_COLORS) {
+				return Optional.empty();
+			}
+		}
+		return Optional.of(new IndexedPalette(colors.toArray(Color[]::new)));
+	}
+}
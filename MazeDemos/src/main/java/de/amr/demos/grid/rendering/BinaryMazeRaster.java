@@ -0,0 +1,197 @@
+package de.amr.demos.grid.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+import de.amr.demos.grid.rendering.BandedMazeImageWriter.MazeStyle;
+import de.amr.demos.maze.common.IndexedPalette;
+import de.amr.demos.maze.common.MazeGrid;
+import de.amr.graph.grid.api.GridGraph2D;
+
+/**
+ * Renders a maze into a 1-bit image ({@code TYPE_BYTE_BINARY}) by writing the pixel bits directly into the image
+ * data, without any Java2D calls. Bit 0 is the wall color, bit 1 the passage color of the maze style.
+ * <p>
+ * The geometry is the same as of a {@link de.amr.graph.grid.ui.rendering.WallPassageGridRenderer}: each cell is a
+ * square of the passage width and each passage connects the squares of its cells. Each pixel row inside a grid row
+ * either crosses the north passages, the cell squares with the east passages, or the south passages of the grid row.
+ * These three row patterns are built once per grid row and then copied into the image, so the rendering time is about
+ * the time for copying the image data.
+ * <p>
+ * Compared to an RGB image, the image needs 32 times less memory. A {@link PngWriter} using {@link #getPalette()}
+ * writes its rows without conversion. Only grids with 4-neighbor topology are supported.
+ *
+ * @author Armin Reichert
+ */
+public class BinaryMazeRaster {
+
+	private final GridGraph2D<?, ?> grid;
+	private final MazeGrid maze;
+	private final MazeStyle style;
+	private final int numCols;
+	private final int numRows;
+	private final int dirEast;
+	private final int dirSouth;
+	private final IndexColorModel colorModel;
+	private final byte[] northRow;
+	private final byte[] middleRow;
+	private final byte[] southRow;
+
+	/**
+	 * @param grid
+	 *                the maze
+	 * @param style
+	 *                cell size, passage width and colors
+	 */
+	public BinaryMazeRaster(GridGraph2D<?, ?> grid, MazeStyle style) {
+		if (grid.getTopology().dirCount() != 4) {
+			throw new IllegalArgumentException("Only grids with 4-neighbor topology are supported");
+		}
+		this.grid = grid;
+		this.maze = null;
+		this.style = style;
+		this.numCols = grid.numCols();
+		this.numRows = grid.numRows();
+		this.dirEast = -1;
+		this.dirSouth = -1;
+		colorModel = createColorModel(style);
+		northRow = new byte[bytesPerRow()];
+		middleRow = new byte[bytesPerRow()];
+		southRow = new byte[bytesPerRow()];
+	}
+
+	/**
+	 * @param maze
+	 *                the maze
+	 * @param style
+	 *                cell size, passage width and colors
+	 */
+	public BinaryMazeRaster(MazeGrid maze, MazeStyle style) {
+		if (maze.numNeighbors() != 4) {
+			throw new IllegalArgumentException("Only grids with 4-neighbor topology are supported");
+		}
+		this.grid = null;
+		this.maze = maze;
+		this.style = style;
+		this.numCols = maze.numCols();
+		this.numRows = maze.numRows();
+		this.dirEast = direction(maze, 1, 0);
+		this.dirSouth = direction(maze, 0, 1);
+		colorModel = createColorModel(style);
+		northRow = new byte[bytesPerRow()];
+		middleRow = new byte[bytesPerRow()];
+		southRow = new byte[bytesPerRow()];
+	}
+
+	private static int direction(MazeGrid maze, int dx, int dy) {
+		for (int dir = 0; dir < maze.numForwardDirections(); ++dir) {
+			if (maze.dx(dir) == dx && maze.dy(dir) == dy) {
+				return dir;
+			}
+		}
+		throw new IllegalArgumentException("Maze has no direction (%d,%d)".formatted(dx, dy));
+	}
+
+	private static IndexColorModel createColorModel(MazeStyle style) {
+		int[] rgbs = { style.wallColor().getRGB() & 0xFFFFFF, style.passageColor().getRGB() & 0xFFFFFF };
+		return new IndexColorModel(1, 2, rgbs, 0, false, -1, DataBufferByte.TYPE_BYTE);
+	}
+
+	private int bytesPerRow() {
+		return (getImageWidth() + 7) / 8;
+	}
+
+	public int getImageWidth() {
+		return Math.multiplyExact(numCols, style.cellSize());
+	}
+
+	public int getImageHeight() {
+		return Math.multiplyExact(numRows, style.cellSize());
+	}
+
+	/**
+	 * @return palette with the wall and passage color at the indices used by the images of this raster
+	 */
+	public IndexedPalette getPalette() {
+		return new IndexedPalette(style.wallColor(), style.passageColor());
+	}
+
+	/**
+	 * @param bandRows
+	 *                   number of grid rows
+	 * @return image with the width of the maze image and the height of the given number of grid rows
+	 */
+	public BufferedImage createBand(int bandRows) {
+		return new BufferedImage(getImageWidth(), Math.multiplyExact(bandRows, style.cellSize()),
+				BufferedImage.TYPE_BYTE_BINARY, colorModel);
+	}
+
+	/**
+	 * @return image of the complete maze
+	 */
+	public BufferedImage render() {
+		BufferedImage image = createBand(numRows);
+		render(image, 0, numRows);
+		return image;
+	}
+
+	/**
+	 * Renders the given grid rows into the top of the given image.
+	 *
+	 * @param band
+	 *                     image created by {@link #createBand(int)} with at least the given number of grid rows
+	 * @param firstRow
+	 *                     first grid row to render
+	 * @param numGridRows
+	 *                     number of grid rows to render
+	 */
+	public void render(BufferedImage band, int firstRow, int numGridRows) {
+		byte[] data = ((DataBufferByte) band.getRaster().getDataBuffer()).getData();
+		int cellSize = style.cellSize(), passageWidth = style.passageWidth();
+		int inset = (cellSize - passageWidth) / 2;
+		int stride = bytesPerRow();
+		for (int row = firstRow; row < firstRow + numGridRows; ++row) {
+			buildRowPatterns(row, cellSize, passageWidth, inset);
+			int offset = (row - firstRow) * cellSize * stride;
+			for (int y = 0; y < cellSize; ++y, offset += stride) {
+				byte[] pattern = y < inset ? northRow : y < inset + passageWidth ? middleRow : southRow;
+				System.arraycopy(pattern, 0, data, offset, stride);
+			}
+		}
+	}
+
+	private void buildRowPatterns(int row, int cellSize, int passageWidth, int inset) {
+		Arrays.fill(northRow, (byte) 0);
+		Arrays.fill(middleRow, (byte) 0);
+		Arrays.fill(southRow, (byte) 0);
+		for (int col = 0, x = inset; col < numCols; ++col, x += cellSize) {
+			setBits(middleRow, x, x + passageWidth);
+			if (col + 1 < numCols && hasEdge(col, row, true)) {
+				setBits(middleRow, x + passageWidth, x + cellSize);
+			}
+			if (row > 0 && hasEdge(col, row - 1, false)) {
+				setBits(northRow, x, x + passageWidth);
+			}
+			if (row + 1 < numRows && hasEdge(col, row, false)) {
+				setBits(southRow, x, x + passageWidth);
+			}
+		}
+	}
+
+	private boolean hasEdge(int col, int row, boolean east) {
+		if (maze != null) {
+			return maze.hasEdge(col, row, east ? dirEast : dirSouth);
+		}
+		int cell = grid.cell(col, row);
+		return grid.adjacent(cell, east ? grid.cell(col + 1, row) : grid.cell(col, row + 1));
+	}
+
+	// sets the bits of the pixels from (inclusive) to (exclusive), leftmost pixel is the highest bit
+	private static void setBits(byte[] pattern, int from, int to) {
+		for (int x = from; x < to; ++x) {
+			pattern[x >> 3] |= (byte) (0x80 >>> (x & 7));
+		}
+	}
+}
@@ -2,11 +2,16 @@ package de.amr.demos.grid.rendering;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import de.amr.demos.maze.common.BandedMazeGenerator;
+import de.amr.demos.maze.common.BandedMazeGenerator.RowAlgorithm;
+import de.amr.demos.maze.common.CompactGrid;
+import de.amr.demos.maze.common.IndexedPalette;
+import de.amr.demos.maze.common.MazeFile;
+import de.amr.demos.maze.common.MazeSvgWriter;
+import de.amr.demos.maze.common.OffHeapGrid;
 import de.amr.graph.core.api.TraversalState;
 import de.amr.graph.grid.api.GridGraph2D;
 import de.amr.graph.grid.api.GridPosition;
-import de.amr.graph.grid.impl.Grid4Topology;
-import de.amr.graph.grid.impl.GridFactory;
 import de.amr.graph.grid.ui.animation.BFSAnimation;
 import de.amr.graph.grid.ui.rendering.GridCanvas;
 import de.amr.graph.grid.ui.rendering.WallPassageGridRenderer;
@@ -18,10 +23,11 @@ import de.amr.maze.alg.ust.WilsonUSTRandomCell;
 import org.tinylog.Logger;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-
-import static de.amr.graph.core.api.TraversalState.UNVISITED;
+import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * Sample app demonstrating how to create a maze image.
@@ -29,6 +35,14 @@ import static de.amr.graph.core.api.TraversalState.UNVISITED;
  * <pre>
  * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg dfs -width 50 -height 25 -cellSize 8 -floodfill
  * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg dfs -w 50 -h 25 -cs 8 -ff
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg kruskal -w 200 -h 100 -cs 4 -indexed
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg kruskal -w 4000 -h 4000 -cs 2 -binary
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg wilson -w 10000 -h 10000 -cs 4 -band 64 -indexed
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -file poster.maze -cs 4 -band 64
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -file huge.maze -cs 2 -band 64 -offheap
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg eller-parallel -w 50000 -h 50000 -cs 2 -band 64 -offheap
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg wilson -w 5000 -h 5000 -cs 4 -offheap -format svgz -solution
+ * java -cp <i>classpath</i> de.amr.demos.grid.rendering.MazeToImage -alg wilson -w 2000 -h 2000 -cs 8 -format svgz -solution
  * </pre>
  * 
  * @author Armin Reichert
@@ -37,7 +51,7 @@ public class MazeToImage {
 
 	public static class Params {
 
-		@Parameter(names = { "-algorithm", "-alg" }, description = "maze algorithm (dfs, bfs, kruskal, wilson, division)")
+		@Parameter(names = { "-algorithm", "-alg" }, description = "maze algorithm (dfs, bfs, kruskal, wilson, division, binarytree-parallel, sidewinder-parallel, eller-parallel)")
 		public String algorithm = "dfs";
 
 		@Parameter(names = { "-width", "-w" }, description = "maze width (num columns")
@@ -49,18 +63,65 @@ public class MazeToImage {
 		@Parameter(names = { "-cellSize", "-cs" }, description = "maze cell size")
 		public int cellSize = 16;
 
+		@Parameter(names = { "-file", "-f" }, description = "maze file to render instead of creating a new maze")
+		public String mazeFile;
+
 		@Parameter(names = { "-floodfill", "-ff" }, description = "maze gets flood-filled")
 		public boolean floodfill = false;
+
+		@Parameter(names = { "-indexed" }, description = "image is stored with a color palette if possible")
+		public boolean indexed = false;
+
+		@Parameter(names = { "-bandRows",
+				"-band" }, description = "PNG image is rendered and written in bands of this many maze rows (0 = all at once)")
+		public int bandRows = 0;
+
+		@Parameter(names = {
+				"-offheap" }, description = "maze is kept outside of the Java heap, either a mapped -file or created by any algorithm (PNG requires -band)")
+		public boolean offHeap = false;
+
+		@Parameter(names = { "-seed" }, description = "seed for the parallel algorithms, the same seed creates the same maze")
+		public Long seed;
+
+		@Parameter(names = { "-format" }, description = "image format (png, svg, svgz = compressed SVG)")
+		public String format = "png";
+
+		@Parameter(names = { "-solution" }, description = "SVG image shows the path from the top left to the bottom right cell")
+		public boolean solution = false;
+
+		@Parameter(names = {
+				"-binary" }, description = "maze is rendered directly into a 1-bit image using the default colors (fast, no flood-fill)")
+		public boolean binary = false;
 	}
 
 	public static void main(String[] args) {
 		var params = new Params();
 		JCommander.newBuilder().addObject(params).build().parse(args);
-		createMazeImage(params, "maze.png", "png");
+		createMazeImage(params, "maze." + params.format, params.format);
 	}
 
 	public static void createMazeImage(Params params, String filename, String imageFormat) {
-		var maze = buildMaze(params.width, params.height, params.algorithm);
+		if (params.offHeap) {
+			writeOffHeapImage(params, filename, imageFormat);
+			return;
+		}
+		var maze = params.mazeFile != null ? loadMaze(params.mazeFile)
+				: buildMaze(params.width, params.height, params.algorithm, params.seed);
+		if (maze == null) {
+			return;
+		}
+		if (isSvgFormat(imageFormat)) {
+			writeSvgImage(params, maze, filename);
+			return;
+		}
+		if (params.binary) {
+			writeBinaryImage(params, maze, filename, imageFormat);
+			return;
+		}
+		if (params.bandRows > 0 && "png".equalsIgnoreCase(imageFormat)) {
+			writeBandedImage(params, maze, filename);
+			return;
+		}
 		var canvas = new GridCanvas(maze, params.cellSize, false);
 		var renderer = new WallPassageGridRenderer();
 		renderer.fnCellSize = () -> params.cellSize;
@@ -71,18 +132,175 @@ public class MazeToImage {
 			Logger.info("Flood-filling maze");
 			BFSAnimation.builder().canvas(canvas).distanceVisible(false).build().floodFill(GridPosition.CENTER);
 		}
+		var image = params.indexed ? toIndexedImage(canvas.getDrawingBuffer()) : canvas.getDrawingBuffer();
 		try {
 			var file = new File(filename);
-			ImageIO.write(canvas.getDrawingBuffer(), imageFormat, file);
+			ImageIO.write(image, imageFormat, file);
 			Logger.info(() -> "Saved maze to file '%s'".formatted(file.getAbsolutePath()));
 		} catch (IOException e) {
 			Logger.error(e);
 		}
 	}
 
-	private static GridGraph2D<TraversalState, Integer> buildMaze(int width, int height, String algorithm) {
+	// the complete image is never in memory, only one band of it
+	private static void writeBandedImage(Params params, GridGraph2D<TraversalState, Integer> maze, String filename) {
+		if (params.floodfill) {
+			Logger.warn("Flood-fill is not supported for banded images and is skipped");
+		}
+		var renderer = new WallPassageGridRenderer();
+		renderer.fnCellSize = () -> params.cellSize;
+		try {
+			var writer = new BandedMazeImageWriter(maze, renderer, params.bandRows);
+			var file = new File(filename);
+			writer.write(file, params.indexed);
+			Logger.info(() -> "Saved %dx%d maze image to file '%s'".formatted(writer.getImageWidth(),
+					writer.getImageHeight(), file.getAbsolutePath()));
+		} catch (IOException | IllegalArgumentException e) {
+			Logger.error(e);
+		}
+	}
+
+	// the pixels are written directly into a 1-bit image, PNG files are written from bands of that image
+	private static void writeBinaryImage(Params params, GridGraph2D<TraversalState, Integer> maze, String filename,
+			String imageFormat) {
+		if (params.floodfill) {
+			Logger.warn("Flood-fill is not supported for binary images and is skipped");
+		}
+		var style = mazeStyle(params.cellSize);
+		try {
+			var file = new File(filename);
+			if ("png".equalsIgnoreCase(imageFormat)) {
+				int bandRows = params.bandRows > 0 ? params.bandRows : maze.numRows();
+				new BandedMazeImageWriter(maze, style, bandRows).write(file, true);
+			} else {
+				ImageIO.write(new BinaryMazeRaster(maze, style).render(), imageFormat, file);
+			}
+			Logger.info(() -> "Saved %dx%d binary maze image to file '%s'".formatted(maze.numCols() * params.cellSize,
+					maze.numRows() * params.cellSize, file.getAbsolutePath()));
+		} catch (IOException e) {
+			Logger.error(e);
+		}
+	}
+
+	// the file size does not depend on the cell size, the passages are streamed to the file without creating an image
+	private static void writeSvgImage(Params params, GridGraph2D<TraversalState, Integer> maze, String filename) {
+		if (params.floodfill) {
+			Logger.warn("Flood-fill is not supported for SVG images and is skipped");
+		}
+		var renderer = new WallPassageGridRenderer();
+		renderer.fnCellSize = () -> params.cellSize;
+		var writer = new MazeSvgWriter(maze, params.cellSize, renderer.fnPassageWidth.apply(0, 0),
+				renderer.getGridBgColor(), renderer.getCellBgColor(0));
+		if (params.solution) {
+			writer.setSolution(maze.cell(GridPosition.TOP_LEFT), maze.cell(GridPosition.BOTTOM_RIGHT));
+		}
+		try {
+			var file = new File(filename);
+			writer.write(file);
+			Logger.info(() -> "Saved %dx%d maze SVG image (%d bytes) to file '%s'".formatted(writer.getImageWidth(),
+					writer.getImageHeight(), file.length(), file.getAbsolutePath()));
+		} catch (IOException e) {
+			Logger.error(e);
+		}
+	}
+
+	/*
+	 * Neither the maze nor the image is on the Java heap, so with a maze file or a parallel algorithm the maze size is
+	 * only limited by the file system. The other algorithms and the path finder of the SVG solution use the grid graph
+	 * view of the maze, so the maze must have at most Integer.MAX_VALUE cells and their own data is on the heap.
+	 */
+	private static void writeOffHeapImage(Params params, String filename, String imageFormat) {
+		boolean svg = isSvgFormat(imageFormat);
+		if (!svg && (params.bandRows < 1 || !"png".equalsIgnoreCase(imageFormat))) {
+			Logger.error("Off-heap rendering requires SVG format or PNG format with a band size");
+			return;
+		}
+		if (params.floodfill) {
+			Logger.warn("Flood-fill is not supported for banded images and is skipped");
+		}
+		var style = mazeStyle(params.cellSize);
+		try (var maze = params.mazeFile != null ? OffHeapGrid.open(Path.of(params.mazeFile), false)
+				: OffHeapGrid.allocate(params.width, params.height, 4)) {
+			if (params.mazeFile != null) {
+				Logger.info(() -> "Mapped maze of size %dx%d from file '%s'".formatted(maze.numCols(), maze.numRows(),
+						params.mazeFile));
+			} else {
+				Logger.info(() -> "Creating off-heap maze of size %dx%d using %s".formatted(maze.numCols(), maze.numRows(),
+						params.algorithm));
+				Optional<RowAlgorithm> algorithm = bandedAlgorithm(params.algorithm);
+				if (algorithm.isPresent()) {
+					createBandedGenerator(algorithm.get(), params.seed).generate(maze);
+				} else {
+					generateMaze(maze.asGridGraph(), params.algorithm, params.seed);
+				}
+			}
+			if (svg) {
+				writeSvgImage(params, maze.asGridGraph(), filename);
+				return;
+			}
+			var writer = new BandedMazeImageWriter(maze, style, params.bandRows);
+			var file = new File(filename);
+			writer.write(file, params.indexed);
+			Logger.info(() -> "Saved %dx%d maze image to file '%s'".formatted(writer.getImageWidth(),
+					writer.getImageHeight(), file.getAbsolutePath()));
+		} catch (IOException | IllegalArgumentException e) {
+			Logger.error(e);
+		}
+	}
+
+	private static boolean isSvgFormat(String imageFormat) {
+		return MazeSvgWriter.EXTENSION.equalsIgnoreCase(imageFormat)
+				|| MazeSvgWriter.COMPRESSED_EXTENSION.equalsIgnoreCase(imageFormat);
+	}
+
+	// sizes and colors of the default renderer
+	private static BandedMazeImageWriter.MazeStyle mazeStyle(int cellSize) {
+		var renderer = new WallPassageGridRenderer();
+		renderer.fnCellSize = () -> cellSize;
+		return new BandedMazeImageWriter.MazeStyle(cellSize, renderer.fnPassageWidth.apply(0, 0),
+				renderer.getGridBgColor(), renderer.getCellBgColor(0));
+	}
+
+	// the maze without flood-fill uses only a few colors, the flood-fill colors might not fit into a palette
+	private static BufferedImage toIndexedImage(BufferedImage image) {
+		var palette = IndexedPalette.fromImage(image);
+		if (palette.isEmpty()) {
+			Logger.warn(() -> "Image has more than %d colors, storing full-color image".formatted(IndexedPalette.MAX_COLORS));
+			return image;
+		}
+		Logger.info(() -> "Storing image with %d colors palette".formatted(palette.get().numColors()));
+		return palette.get().convert(image);
+	}
+
+	private static GridGraph2D<TraversalState, Integer> loadMaze(String mazeFile) {
+		try {
+			var maze = MazeFile.load(Path.of(mazeFile));
+			Logger.info(() -> "Loaded maze of size %dx%d from file '%s'".formatted(maze.numCols(), maze.numRows(),
+					mazeFile));
+			return maze;
+		} catch (IOException e) {
+			Logger.error(e);
+			return null;
+		}
+	}
+
+	// nobody observes the grid while the maze is created, so it is created in a compact grid
+	private static GridGraph2D<TraversalState, Integer> buildMaze(int width, int height, String algorithm, Long seed) {
 		Logger.info(() -> "Creating maze of size %dx%d using %s".formatted(width, height, algorithm));
-		var grid = GridFactory.emptyObservableGrid(width, height, Grid4Topology.get(), UNVISITED, 0);
+		GridGraph2D<TraversalState, Integer> grid = new CompactGrid(width, height, 4);
+		generateMaze(grid, algorithm, seed);
+		return grid;
+	}
+
+	private static void generateMaze(GridGraph2D<TraversalState, Integer> grid, String algorithm, Long seed) {
+		Optional<RowAlgorithm> bandedAlgorithm = bandedAlgorithm(algorithm);
+		if (bandedAlgorithm.isPresent()) {
+			createBandedGenerator(bandedAlgorithm.get(), seed).generate(grid);
+			return;
+		}
+		if (seed != null) {
+			Logger.warn(() -> "Algorithm %s cannot be seeded, maze is random".formatted(algorithm));
+		}
 		switch (algorithm) {
 		case "dfs" -> new IterativeDFS(grid).createMaze(0, 0);
 		case "bfs" -> new RandomBFS(grid).createMaze(0, 0);
@@ -91,6 +309,22 @@ public class MazeToImage {
 		case "division" -> new RecursiveDivision(grid).createMaze(0, 0);
 		default -> throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
 		}
-		return grid;
+	}
+
+	private static BandedMazeGenerator createBandedGenerator(RowAlgorithm algorithm, Long seed) {
+		var generator = new BandedMazeGenerator(algorithm);
+		if (seed != null) {
+			generator.setSeed(seed);
+		}
+		return generator;
+	}
+
+	private static Optional<RowAlgorithm> bandedAlgorithm(String algorithm) {
+		return switch (algorithm) {
+		case "binarytree-parallel" -> Optional.of(RowAlgorithm.BINARY_TREE);
+		case "sidewinder-parallel" -> Optional.of(RowAlgorithm.SIDEWINDER);
+		case "eller-parallel" -> Optional.of(RowAlgorithm.ELLER);
+		default -> Optional.empty();
+		};
 	}
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package de.amr.demos.grid.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import de.amr.demos.maze.common.IndexedPalette;
+
+/**
+ * Streaming PNG writer. The image rows are passed in order, in any number of steps, and are compressed and written
+ * immediately, so the complete image never has to be in memory.
+ * <p>
+ * Without palette, an 8-bit RGB image is written. With palette, a palette image with the smallest possible bit depth
+ * (1, 2, 4 or 8) is written. Each row uses the "Up" filter which works well for mazes because most rows repeat the
+ * row above.
+ * <p>
+ * Rows of a 1-bit image (see {@link BinaryMazeRaster}) with the same two colors as a 2-color palette already have the
+ * PNG row layout and are copied without conversion.
+ *
+ * @author Armin Reichert
+ */
+public class PngWriter implements AutoCloseable {
+
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final int FILTER_UP = 2;
+
+	private final DataOutputStream out;
+	private final int width;
+	private final int height;
+	private final IndexedPalette palette;
+	private final int bitDepth;
+	private final DeflaterOutputStream pixelData;
+	private final Deflater deflater;
+	private byte[] row;
+	private byte[] previousRow;
+	private final byte[] filteredRow;
+	private final int[] pixels;
+	private int rowsWritten;
+
+	/**
+	 * Creates a writer and writes the PNG header.
+	 *
+	 * @param out
+	 *                  output stream, closed by {@link #close()}
+	 * @param width
+	 *                  image width
+	 * @param height
+	 *                  image height
+	 * @param palette
+	 *                  palette for a palette image or {@code null} for an RGB image
+	 * @throws IOException
+	 *                       if writing fails
+	 */
+	public PngWriter(OutputStream out, int width, int height, IndexedPalette palette) throws IOException {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Illegal image size %dx%d".formatted(width, height));
+		}
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		this.palette = palette;
+		bitDepth = palette == null ? 8 : bitDepth(palette.numColors());
+		int bytesPerRow = palette == null ? 3 * width : (width * bitDepth + 7) / 8;
+		row = new byte[bytesPerRow];
+		previousRow = new byte[bytesPerRow];
+		filteredRow = new byte[1 + bytesPerRow];
+		filteredRow[0] = FILTER_UP;
+		pixels = new int[width];
+		this.out.write(SIGNATURE);
+		writeHeader();
+		if (palette != null) {
+			writePalette();
+		}
+		deflater = new Deflater(Deflater.BEST_SPEED);
+		pixelData = new DeflaterOutputStream(new ImageDataStream(), deflater, CHUNK_SIZE);
+	}
+
+	private static int bitDepth(int numColors) {
+		return numColors <= 2 ? 1 : numColors <= 4 ? 2 : numColors <= 16 ? 4 : 8;
+	}
+
+	public int getRowsWritten() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Writes rows of the given image as the next image rows.
+	 *
+	 * @param image
+	 *                   image with the same width as the PNG image, e.g. a band of it
+	 * @param firstRow
+	 *                   first row of the image to write
+	 * @param numRows
+	 *                   number of rows to write
+	 * @throws IOException
+	 *                       if writing fails
+	 */
+	public void writeRows(BufferedImage image, int firstRow, int numRows) throws IOException {
+		if (image.getWidth() != width) {
+			throw new IllegalArgumentException("Image width is %d but must be %d".formatted(image.getWidth(), width));
+		}
+		if (rowsWritten + numRows > height) {
+			throw new IllegalStateException("Too many rows, image height is %d".formatted(height));
+		}
+		byte[] packedRows = packedRows(image);
+		for (int y = firstRow; y < firstRow + numRows; ++y) {
+			if (packedRows != null) {
+				System.arraycopy(packedRows, y * row.length, row, 0, row.length);
+			} else if (palette != null) {
+				image.getRGB(0, y, width, 1, pixels, 0, width);
+				packIndices();
+			} else {
+				image.getRGB(0, y, width, 1, pixels, 0, width);
+				for (int x = 0, i = 0; x < width; ++x) {
+					row[i++] = (byte) (pixels[x] >> 16);
+					row[i++] = (byte) (pixels[x] >> 8);
+					row[i++] = (byte) pixels[x];
+				}
+			}
+			for (int i = 0; i < row.length; ++i) {
+				filteredRow[i + 1] = (byte) (row[i] - previousRow[i]);
+			}
+			pixelData.write(filteredRow);
+			byte[] tmp = previousRow;
+			previousRow = row;
+			row = tmp;
+			++rowsWritten;
+		}
+	}
+
+	// returns the image data if the rows can be copied as is, null otherwise
+	private byte[] packedRows(BufferedImage image) {
+		if (bitDepth != 1 || palette.numColors() != 2 || image.getType() != BufferedImage.TYPE_BYTE_BINARY
+				|| image.getRaster().getParent() != null
+				|| !(image.getSampleModel() instanceof MultiPixelPackedSampleModel sampleModel)
+				|| sampleModel.getPixelBitStride() != 1 || sampleModel.getScanlineStride() != row.length
+				|| sampleModel.getDataBitOffset() != 0) {
+			return null;
+		}
+		IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+		for (int i = 0; i < 2; ++i) {
+			if ((colorModel.getRGB(i) & 0xFFFFFF) != (palette.getColorModel().getRGB(i) & 0xFFFFFF)) {
+				return null;
+			}
+		}
+		DataBufferByte dataBuffer = (DataBufferByte) image.getRaster().getDataBuffer();
+		return dataBuffer.getOffset() == 0 ? dataBuffer.getData() : null;
+	}
+
+	private void packIndices() {
+		int pixelsPerByte = 8 / bitDepth;
+		for (int i = 0, x = 0; i < row.length; ++i) {
+			int b = 0;
+			for (int k = 0; k < pixelsPerByte; ++k, ++x) {
+				b <<= bitDepth;
+				if (x < width) {
+					b |= palette.index(pixels[x]);
+				}
+			}
+			row[i] = (byte) b;
+		}
+	}
+
+	/**
+	 * Writes the end of the image and closes the output stream.
+	 *
+	 * @throws IOException
+	 *                       if writing fails or not all rows have been written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (rowsWritten != height) {
+				throw new IOException("Only %d of %d rows have been written".formatted(rowsWritten, height));
+			}
+			pixelData.finish();
+			pixelData.flush();
+			writeChunk("IEND", new byte[0], 0);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		byte[] data = new byte[13];
+		putInt(data, 0, width);
+		putInt(data, 4, height);
+		data[8] = (byte) bitDepth;
+		data[9] = (byte) (palette == null ? 2 : 3); // color type: RGB or palette
+		data[10] = 0; // compression: deflate
+		data[11] = 0; // filter method: adaptive
+		data[12] = 0; // no interlace
+		writeChunk("IHDR", data, data.length);
+	}
+
+	private void writePalette() throws IOException {
+		byte[] data = new byte[3 * palette.numColors()];
+		for (int i = 0; i < palette.numColors(); ++i) {
+			int rgb = palette.getColorModel().getRGB(i);
+			data[3 * i] = (byte) (rgb >> 16);
+			data[3 * i + 1] = (byte) (rgb >> 8);
+			data[3 * i + 2] = (byte) rgb;
+		}
+		writeChunk("PLTE", data, data.length);
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void putInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	// collects the compressed pixel data and writes it as a sequence of IDAT chunks
+	private class ImageDataStream extends OutputStream {
+
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int size;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				if (size == buffer.length) {
+					flush();
+				}
+				int n = Math.min(length, buffer.length - size);
+				System.arraycopy(bytes, offset, buffer, size, n);
+				size += n;
+				offset += n;
+				length -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (size > 0) {
+				writeChunk("IDAT", buffer, size);
+				size = 0;
+			}
+		}
+	}
+}
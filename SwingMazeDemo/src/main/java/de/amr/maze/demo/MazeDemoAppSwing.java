@@ -13,6 +13,7 @@ import org.tinylog.Logger;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.OptionalLong;
 
 import static de.amr.swing.MySwing.action;
 
@@ -50,6 +51,9 @@ public class MazeDemoAppSwing {
 	public MazeDemoAppSwing(Settings settings) {
 		this.settings = settings;
 		model = new MazeDemoModel();
+		if (settings.seed != null) {
+			model.setSeed(OptionalLong.of(settings.seed));
+		}
 		var gridWidth = settings.width / model.getGridCellSize();
 		var gridHeight = settings.height / model.getGridCellSize();
 		model.createGrid(gridWidth, gridHeight, false, TraversalState.UNVISITED);
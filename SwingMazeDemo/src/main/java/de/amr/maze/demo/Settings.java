@@ -47,6 +47,9 @@ public class Settings {
 			"-theme" }, converter = ThemeConverter.class)
 	public String theme = NimbusLookAndFeel.class.getName();
 
+	@Parameter(description = "Seed for maze generation (default: random)", names = { "-seed" })
+	public Long seed;
+
 	public Settings(int width, int height) {
 		this.width = width;
 		this.height = height;
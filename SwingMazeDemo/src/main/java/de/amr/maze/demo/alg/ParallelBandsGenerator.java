@@ -0,0 +1,44 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.demos.maze.common.BandedMazeGenerator;
+import de.amr.demos.maze.common.BandedMazeGenerator.RowAlgorithm;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.core.MazeGenerator;
+
+/**
+ * Maze generator creating horizontal bands of the grid in parallel using a row-local algorithm, see
+ * {@link BandedMazeGenerator}. The start cell is ignored. Generators created with a seed always create the same
+ * maze for the same grid size.
+ * 
+ * @author Armin Reichert
+ */
+public abstract class ParallelBandsGenerator implements ParallelMazeGenerator {
+
+	private final GridGraph2D<TraversalState, Integer> grid;
+	private final BandedMazeGenerator generator;
+	private final Class<? extends MazeGenerator> sequentialGenerator;
+
+	protected ParallelBandsGenerator(GridGraph2D<TraversalState, Integer> grid, RowAlgorithm algorithm,
+			Class<? extends MazeGenerator> sequentialGenerator) {
+		this.grid = grid;
+		this.sequentialGenerator = sequentialGenerator;
+		generator = new BandedMazeGenerator(algorithm);
+	}
+
+	protected ParallelBandsGenerator(GridGraph2D<TraversalState, Integer> grid, RowAlgorithm algorithm,
+			Class<? extends MazeGenerator> sequentialGenerator, long seed) {
+		this(grid, algorithm, sequentialGenerator);
+		generator.setSeed(seed);
+	}
+
+	@Override
+	public Class<? extends MazeGenerator> sequentialGenerator() {
+		return sequentialGenerator;
+	}
+
+	@Override
+	public void createMaze(int x, int y) {
+		generator.generate(grid);
+	}
+}
@@ -0,0 +1,22 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.demos.maze.common.BandedMazeGenerator.RowAlgorithm;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.others.BinaryTree;
+
+/**
+ * Creates a maze using the binary tree algorithm on parallel bands of rows.
+ * 
+ * @author Armin Reichert
+ */
+public class ParallelBinaryTree extends ParallelBandsGenerator {
+
+	public ParallelBinaryTree(GridGraph2D<TraversalState, Integer> grid) {
+		super(grid, RowAlgorithm.BINARY_TREE, BinaryTree.class);
+	}
+
+	public ParallelBinaryTree(GridGraph2D<TraversalState, Integer> grid, long seed) {
+		super(grid, RowAlgorithm.BINARY_TREE, BinaryTree.class, seed);
+	}
+}
@@ -0,0 +1,22 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.demos.maze.common.BandedMazeGenerator.RowAlgorithm;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.others.Eller;
+
+/**
+ * Creates a maze using Eller's algorithm on parallel bands of rows.
+ * 
+ * @author Armin Reichert
+ */
+public class ParallelEller extends ParallelBandsGenerator {
+
+	public ParallelEller(GridGraph2D<TraversalState, Integer> grid) {
+		super(grid, RowAlgorithm.ELLER, Eller.class);
+	}
+
+	public ParallelEller(GridGraph2D<TraversalState, Integer> grid, long seed) {
+		super(grid, RowAlgorithm.ELLER, Eller.class, seed);
+	}
+}
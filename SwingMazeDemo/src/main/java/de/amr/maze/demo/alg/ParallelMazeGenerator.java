@@ -0,0 +1,16 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.maze.alg.core.MazeGenerator;
+
+/**
+ * Maze generator using multiple threads.
+ * 
+ * @author Armin Reichert
+ */
+public interface ParallelMazeGenerator extends MazeGenerator {
+
+	/**
+	 * @return class of the single-threaded generator this generator should be compared with
+	 */
+	Class<? extends MazeGenerator> sequentialGenerator();
+}
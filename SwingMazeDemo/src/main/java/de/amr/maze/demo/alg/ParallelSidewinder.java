@@ -0,0 +1,22 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.demos.maze.common.BandedMazeGenerator.RowAlgorithm;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.others.Sidewinder;
+
+/**
+ * Creates a maze using the sidewinder algorithm on parallel bands of rows.
+ * 
+ * @author Armin Reichert
+ */
+public class ParallelSidewinder extends ParallelBandsGenerator {
+
+	public ParallelSidewinder(GridGraph2D<TraversalState, Integer> grid) {
+		super(grid, RowAlgorithm.SIDEWINDER, Sidewinder.class);
+	}
+
+	public ParallelSidewinder(GridGraph2D<TraversalState, Integer> grid, long seed) {
+		super(grid, RowAlgorithm.SIDEWINDER, Sidewinder.class, seed);
+	}
+}
@@ -0,0 +1,17 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.mst.KruskalMST;
+
+/**
+ * Creates a maze using Kruskal's algorithm on parallel regions of the grid.
+ * 
+ * @author Armin Reichert
+ */
+public class RegionalKruskalMST extends RegionalMazeGenerator {
+
+	public RegionalKruskalMST(GridGraph2D<TraversalState, Integer> grid) {
+		super(grid, KruskalMST.class);
+	}
+}
@@ -0,0 +1,118 @@
+package de.amr.maze.demo.alg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.impl.Grid4Topology;
+import de.amr.graph.grid.impl.GridFactory;
+import de.amr.maze.alg.core.MazeGenerator;
+
+/**
+ * Divide-and-conquer maze generator. The grid is partitioned into rectangular regions and a maze is created inside
+ * each region concurrently using any maze generator. Then the regions are connected along a spanning tree of the region
+ * grid, created by the same generator, by opening one random passage through each wall between two connected regions.
+ * <p>
+ * Each region is generated on a separate grid without observers. The passages of a region are copied into the maze
+ * grid as soon as the region is complete, one region at a time, because grids are not thread-safe. The start cell is
+ * ignored.
+ * <p>
+ * The number of regions does not depend on the number of processors. Regional generators cannot be seeded because
+ * the library generators creating the regions cannot be seeded, so a seed would not reproduce the maze.
+ *
+ * @author Armin Reichert
+ */
+public abstract class RegionalMazeGenerator implements ParallelMazeGenerator {
+
+	private static final int NUM_REGIONS = 64;
+
+	private record Region(int col, int row, int numCols, int numRows) {
+	}
+
+	private final GridGraph2D<TraversalState, Integer> grid;
+	private final Class<? extends MazeGenerator> regionGenerator;
+	private final Random rnd = new Random();
+
+	/**
+	 * @param grid
+	 *                          the grid where the maze is created
+	 * @param regionGenerator
+	 *                          class of the generator for the regions, must have a constructor taking a
+	 *                          {@link GridGraph2D}
+	 */
+	protected RegionalMazeGenerator(GridGraph2D<TraversalState, Integer> grid,
+			Class<? extends MazeGenerator> regionGenerator) {
+		this.grid = grid;
+		this.regionGenerator = regionGenerator;
+	}
+
+	@Override
+	public Class<? extends MazeGenerator> sequentialGenerator() {
+		return regionGenerator;
+	}
+
+	@Override
+	public void createMaze(int x, int y) {
+		// square regions, about NUM_REGIONS of them
+		int regionSize = Math.max(2, (int) Math.ceil(Math.sqrt((double) grid.numVertices() / NUM_REGIONS)));
+		int regionCols = (grid.numCols() + regionSize - 1) / regionSize;
+		int regionRows = (grid.numRows() + regionSize - 1) / regionSize;
+		List<Region> regions = new ArrayList<>();
+		for (int row = 0; row < regionRows; ++row) {
+			for (int col = 0; col < regionCols; ++col) {
+				int x0 = col * regionSize, y0 = row * regionSize;
+				regions.add(new Region(x0, y0, Math.min(regionSize, grid.numCols() - x0),
+						Math.min(regionSize, grid.numRows() - y0)));
+			}
+		}
+		regions.parallelStream().forEach(this::createRegionMaze);
+		connectRegions(regions, regionCols, regionRows);
+	}
+
+	private MazeGenerator createGenerator(GridGraph2D<TraversalState, Integer> regionGrid) {
+		try {
+			return regionGenerator.getConstructor(GridGraph2D.class).newInstance(regionGrid);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void createRegionMaze(Region region) {
+		GridGraph2D<TraversalState, Integer> regionGrid = GridFactory.emptyGrid(region.numCols(), region.numRows(),
+				grid.getTopology(), TraversalState.UNVISITED, 0);
+		createGenerator(regionGrid).createMaze(region.numCols() / 2, region.numRows() / 2);
+		synchronized (grid) {
+			regionGrid.edges().forEach(edge -> grid.addEdge(toGridCell(regionGrid, region, edge.either()),
+					toGridCell(regionGrid, region, edge.other())));
+			regionGrid.vertices().forEach(cell -> grid.set(toGridCell(regionGrid, region, cell), TraversalState.COMPLETED));
+		}
+	}
+
+	private int toGridCell(GridGraph2D<?, ?> regionGrid, Region region, int cell) {
+		return grid.cell(region.col() + regionGrid.col(cell), region.row() + regionGrid.row(cell));
+	}
+
+	/*
+	 * Creates a spanning tree of the region grid and opens one random passage between each pair of adjacent regions.
+	 */
+	private void connectRegions(List<Region> regions, int regionCols, int regionRows) {
+		GridGraph2D<TraversalState, Integer> regionGrid = GridFactory.emptyGrid(regionCols, regionRows,
+				Grid4Topology.get(), TraversalState.UNVISITED, 0);
+		createGenerator(regionGrid).createMaze(regionCols / 2, regionRows / 2);
+		regionGrid.edges().forEach(edge -> {
+			Region either = regions.get(Math.min(edge.either(), edge.other()));
+			Region other = regions.get(Math.max(edge.either(), edge.other()));
+			if (either.row() == other.row()) {
+				// "other" is east of "either"
+				int col = other.col() - 1, row = either.row() + rnd.nextInt(either.numRows());
+				grid.addEdge(grid.cell(col, row), grid.cell(col + 1, row));
+			} else {
+				// "other" is south of "either"
+				int col = either.col() + rnd.nextInt(either.numCols()), row = other.row() - 1;
+				grid.addEdge(grid.cell(col, row), grid.cell(col, row + 1));
+			}
+		});
+	}
+}
@@ -0,0 +1,17 @@
+package de.amr.maze.demo.alg;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.maze.alg.ust.WilsonUSTRandomCell;
+
+/**
+ * Creates a maze using Wilson's algorithm (random cell order) on parallel regions of the grid.
+ * 
+ * @author Armin Reichert
+ */
+public class RegionalWilsonUST extends RegionalMazeGenerator {
+
+	public RegionalWilsonUST(GridGraph2D<TraversalState, Integer> grid) {
+		super(grid, WilsonUSTRandomCell.class);
+	}
+}
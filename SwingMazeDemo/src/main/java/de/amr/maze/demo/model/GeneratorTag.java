@@ -4,5 +4,5 @@ package de.amr.maze.demo.model;
  * @author Armin Reichert
  */
 public enum GeneratorTag {
-	GRAPH_TRAVERSAL, MIN_SPANNING_TREE, UNIFORM_SPANNING_TREE, SLOW, SMALL_GRID_ONLY, EDGE_DELETING;
+	GRAPH_TRAVERSAL, MIN_SPANNING_TREE, UNIFORM_SPANNING_TREE, SLOW, SMALL_GRID_ONLY, EDGE_DELETING, PARALLEL;
 }
\ No newline at end of file
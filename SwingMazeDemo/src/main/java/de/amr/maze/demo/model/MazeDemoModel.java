@@ -1,9 +1,9 @@
 package de.amr.maze.demo.model;
 
-import static de.amr.datastruct.StreamUtils.randomElement;
 import static de.amr.maze.demo.model.GeneratorTag.EDGE_DELETING;
 import static de.amr.maze.demo.model.GeneratorTag.GRAPH_TRAVERSAL;
 import static de.amr.maze.demo.model.GeneratorTag.MIN_SPANNING_TREE;
+import static de.amr.maze.demo.model.GeneratorTag.PARALLEL;
 import static de.amr.maze.demo.model.GeneratorTag.SLOW;
 import static de.amr.maze.demo.model.GeneratorTag.SMALL_GRID_ONLY;
 import static de.amr.maze.demo.model.GeneratorTag.UNIFORM_SPANNING_TREE;
@@ -19,12 +19,15 @@ import static de.amr.graph.grid.impl.GridFactory.fullObservableGrid;
 import java.beans.PropertyChangeSupport;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Random;
 import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
+import de.amr.demos.maze.common.CompactGrid;
 import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.api.GridGraph2D;
 import de.amr.graph.grid.api.GridMetrics;
 import de.amr.graph.grid.api.GridPosition;
 import de.amr.graph.grid.api.GridTopology;
@@ -42,6 +45,7 @@ import de.amr.graph.pathfinder.impl.DepthFirstSearch2;
 import de.amr.graph.pathfinder.impl.DijkstraSearch;
 import de.amr.graph.pathfinder.impl.HillClimbingSearch;
 import de.amr.graph.pathfinder.impl.IDDFS;
+import de.amr.maze.alg.core.MazeGenerator;
 import de.amr.maze.alg.mst.BoruvkaMST;
 import de.amr.maze.alg.mst.KruskalMST;
 import de.amr.maze.alg.mst.PrimMST;
@@ -81,6 +85,11 @@ import de.amr.maze.alg.ust.WilsonUSTRandomCell;
 import de.amr.maze.alg.ust.WilsonUSTRecursiveCrosses;
 import de.amr.maze.alg.ust.WilsonUSTRightToLeftSweep;
 import de.amr.maze.alg.ust.WilsonUSTRowsTopDown;
+import de.amr.maze.demo.alg.ParallelBinaryTree;
+import de.amr.maze.demo.alg.ParallelEller;
+import de.amr.maze.demo.alg.ParallelSidewinder;
+import de.amr.maze.demo.alg.RegionalKruskalMST;
+import de.amr.maze.demo.alg.RegionalWilsonUST;
 
 /**
  * Data model of the maze demo application.
@@ -132,6 +141,11 @@ public class MazeDemoModel {
 		new Algorithm(HuntAndKill.class, "Hunt-And-Kill", ""),
 		new Algorithm(HuntAndKillRandom.class, "Hunt-And-Kill (random)", ""),
 		new Algorithm(RecursiveDivision.class, "Recursive Division", "", EDGE_DELETING),
+		new Algorithm(ParallelBinaryTree.class, "Binary Tree (parallel bands)", "", PARALLEL),
+		new Algorithm(ParallelSidewinder.class, "Sidewinder (parallel bands)", "", PARALLEL),
+		new Algorithm(ParallelEller.class, "Eller's Algorithm (parallel bands)", "", PARALLEL),
+		new Algorithm(RegionalKruskalMST.class, "Kruskal MST (parallel regions)", "", PARALLEL),
+		new Algorithm(RegionalWilsonUST.class, "Wilson UST (parallel regions)", "not uniform", PARALLEL),
 		/*@formatter:on*/
 	};
 
@@ -141,7 +155,7 @@ public class MazeDemoModel {
 		new Algorithm(BidiBreadthFirstSearch.class, "Bidirectional Breadth-First Search", "", BFS),
 		new Algorithm(DepthFirstSearch.class, "Depth-First Search", "", DFS),
 		new Algorithm(DepthFirstSearch2.class, "Depth-First Search (variation)", "", DFS), 
-		new Algorithm(IDDFS.class, "Iterative-Deepening DFS", VERY_SLOW, DFS),
+		new Algorithm(IDDFS.class, "Iterative-Deepening DFS", VERY_SLOW, DFS, SolverTag.SLOW),
 		new Algorithm(DijkstraSearch.class, "Uniform-Cost (Dijkstra) Search", "", BFS),
 		new Algorithm(BidiDijkstraSearch.class, "Bidirectional Dijkstra Search", "", BFS),
 		new Algorithm(HillClimbingSearch.class, "Hill-Climbing Search", "", DFS, INFORMED),
@@ -153,7 +167,7 @@ public class MazeDemoModel {
 
 	public final PropertyChangeSupport changes = new PropertyChangeSupport(this);
 
-	private Random rnd = new Random();
+	private OptionalLong seed = OptionalLong.empty();
 	private ObservableGridGraph<TraversalState, Integer> grid;
 	private GridTopology gridTopology;
 	private GridRenderingStyle renderingStyle;
@@ -162,6 +176,10 @@ public class MazeDemoModel {
 	private int passageWidthPercentage;
 	private boolean passageWidthFluent;
 	private boolean generationAnimated;
+	private boolean generationRecorded;
+	private boolean generationCompact;
+	private boolean speedupReported;
+	private boolean verificationIncremental;
 	private int delay;
 	private GridPosition generationStart;
 	private boolean distancesVisible;
@@ -274,6 +292,43 @@ public class MazeDemoModel {
 		changes.firePropertyChange("generationAnimated", oldValue, newValue);
 	}
 
+	public boolean isGenerationRecorded() {
+		return generationRecorded;
+	}
+
+	public void setGenerationRecorded(boolean newValue) {
+		boolean oldValue = generationRecorded;
+		generationRecorded = newValue;
+		changes.firePropertyChange("generationRecorded", oldValue, newValue);
+	}
+
+	public boolean isGenerationCompact() {
+		return generationCompact;
+	}
+
+	/**
+	 * @param newValue if mazes generated without animation are created in a {@link CompactGrid}
+	 */
+	public void setGenerationCompact(boolean newValue) {
+		boolean oldValue = generationCompact;
+		generationCompact = newValue;
+		changes.firePropertyChange("generationCompact", oldValue, newValue);
+	}
+
+	public boolean isSpeedupReported() {
+		return speedupReported;
+	}
+
+	/**
+	 * @param newValue if a parallel generator without animation is compared with its sequential version after the maze
+	 *                 has been shown
+	 */
+	public void setSpeedupReported(boolean newValue) {
+		boolean oldValue = speedupReported;
+		speedupReported = newValue;
+		changes.firePropertyChange("speedupReported", oldValue, newValue);
+	}
+
 	public ObservableGridGraph<TraversalState, Integer> getGrid() {
 		return grid;
 	}
@@ -285,6 +340,48 @@ public class MazeDemoModel {
 		changes.firePropertyChange("grid", oldGrid, grid);
 	}
 
+	public void setGrid(ObservableGridGraph<TraversalState, Integer> newGrid) {
+		ObservableGridGraph<TraversalState, Integer> oldGrid = grid;
+		grid = newGrid;
+		changes.firePropertyChange("grid", oldGrid, grid);
+	}
+
+	/**
+	 * Creates a grid with the size, topology and fill state of the current grid which is not used by the model. Nobody
+	 * observes this grid, so graph operations do not trigger any drawing. If {@link #isGenerationCompact()} is set, the
+	 * grid is a {@link CompactGrid}. Use {@link #attachGrid(GridGraph2D)} to make it the model grid.
+	 * 
+	 * @return new grid without observers
+	 */
+	public GridGraph2D<TraversalState, Integer> createDetachedGrid() {
+		int numCols = grid.numCols(), numRows = grid.numRows();
+		if (generationCompact) {
+			CompactGrid compactGrid = new CompactGrid(numCols, numRows, gridTopology.dirCount());
+			if (grid.isFull()) {
+				compactGrid.fill();
+			}
+			return compactGrid;
+		}
+		return grid.isFull() ? fullObservableGrid(numCols, numRows, gridTopology, TraversalState.UNVISITED, 0)
+				: emptyObservableGrid(numCols, numRows, gridTopology, TraversalState.UNVISITED, 0);
+	}
+
+	/**
+	 * Makes a grid created by {@link #createDetachedGrid()} the model grid. A compact grid is converted into an
+	 * observable grid first.
+	 * 
+	 * @param detachedGrid grid created by {@link #createDetachedGrid()}
+	 */
+	public void attachGrid(GridGraph2D<TraversalState, Integer> detachedGrid) {
+		if (detachedGrid instanceof CompactGrid compactGrid) {
+			setGrid(compactGrid.toObservableGrid());
+		} else if (detachedGrid instanceof ObservableGridGraph<TraversalState, Integer> observableGrid) {
+			setGrid(observableGrid);
+		} else {
+			throw new IllegalArgumentException("Unsupported grid type: " + detachedGrid.getClass().getName());
+		}
+	}
+
 	public void createGridSilently(int numCols, int numRows, boolean full, TraversalState defaultState) {
 		grid = full ? fullObservableGrid(numCols, numRows, gridTopology, defaultState, 0)
 				: emptyObservableGrid(numCols, numRows, gridTopology, defaultState, 0);
@@ -304,14 +401,15 @@ public class MazeDemoModel {
 		ObservableGridGraph<TraversalState, Integer> oldGrid = grid;
 		grid = emptyObservableGrid(c, r, gridTopology, TraversalState.UNVISITED, 0);
 		new WilsonUSTRandomCell(grid).createMaze(0, 0);
+		Random rnd = newRandom();
 		int numFullGridEdges = gridTopology == Grid4Topology.get() ? 2 * c * r - c - r : 4 * c * r - 3 * c - 3 * r + 2;
 		int maxEdgesToAdd = numFullGridEdges - grid.numEdges();
 		int numEdgesToAdd = sparse ? maxEdgesToAdd * 10 / 100 : maxEdgesToAdd * 50 / 100;
 		while (numEdgesToAdd > 0) {
 			int v = rnd.nextInt(grid.numVertices());
-			Optional<Integer> unconnectedNeighbor = randomElement(grid.neighbors(v).filter(w -> !grid.adjacent(v, w)));
-			if (unconnectedNeighbor.isPresent()) {
-				grid.addEdge(v, unconnectedNeighbor.get());
+			int[] unconnectedNeighbors = grid.neighbors(v).filter(w -> !grid.adjacent(v, w)).toArray();
+			if (unconnectedNeighbors.length > 0) {
+				grid.addEdge(v, unconnectedNeighbors[rnd.nextInt(unconnectedNeighbors.length)]);
 				numEdgesToAdd--;
 			}
 		}
@@ -348,6 +446,72 @@ public class MazeDemoModel {
 		changes.firePropertyChange("metric", oldValue, newValue);
 	}
 
+	public boolean isVerificationIncremental() {
+		return verificationIncremental;
+	}
+
+	public void setVerificationIncremental(boolean newValue) {
+		boolean oldValue = verificationIncremental;
+		verificationIncremental = newValue;
+		changes.firePropertyChange("verificationIncremental", oldValue, newValue);
+	}
+
+	/**
+	 * @return the seed for maze generation, if empty each maze is different
+	 */
+	public OptionalLong getSeed() {
+		return seed;
+	}
+
+	public void setSeed(OptionalLong newValue) {
+		OptionalLong oldValue = seed;
+		seed = newValue;
+		changes.firePropertyChange("seed", oldValue, newValue);
+	}
+
+	/**
+	 * @return new random number generator, seeded with the current seed if there is one
+	 */
+	public Random newRandom() {
+		return seed.isPresent() ? new Random(seed.getAsLong()) : new Random();
+	}
+
+	/**
+	 * @param generatorClass
+	 *                         maze generator class
+	 * @return if the generator has a constructor taking a seed
+	 */
+	public static boolean isSeedable(Class<?> generatorClass) {
+		try {
+			generatorClass.getConstructor(GridGraph2D.class, long.class);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a generator instance for the given grid. If there is a seed and the generator can be seeded, the same seed
+	 * always creates the same maze.
+	 * 
+	 * @param generatorClass
+	 *                         maze generator class
+	 * @param grid
+	 *                         grid where the maze is created
+	 * @return new generator instance
+	 */
+	public MazeGenerator createGeneratorInstance(Class<?> generatorClass, GridGraph2D<TraversalState, Integer> grid) {
+		try {
+			if (seed.isPresent() && isSeedable(generatorClass)) {
+				return (MazeGenerator) generatorClass.getConstructor(GridGraph2D.class, long.class).newInstance(grid,
+						seed.getAsLong());
+			}
+			return (MazeGenerator) generatorClass.getConstructor(GridGraph2D.class).newInstance(grid);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public boolean isDistancesVisible() {
 		return distancesVisible;
 	}
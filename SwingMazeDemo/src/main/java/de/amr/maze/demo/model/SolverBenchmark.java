@@ -0,0 +1,80 @@
+package de.amr.maze.demo.model;
+
+import java.util.Arrays;
+
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.pathfinder.api.GraphSearch;
+import de.amr.graph.pathfinder.api.Path;
+
+/**
+ * Runs the maze solvers on the current grid of the model without any animation, so the measured times only contain
+ * the search itself.
+ * 
+ * @author Armin Reichert
+ */
+public class SolverBenchmark {
+
+	/**
+	 * Benchmark result of a single solver.
+	 * 
+	 * @param solver           the solver
+	 * @param medianMillis     median time of a search in milliseconds
+	 * @param expandedVertices number of vertices touched by the search
+	 * @param pathLength       number of edges of the found path, -1 if no path was found
+	 */
+	public record Result(Algorithm solver, double medianMillis, int expandedVertices, int pathLength) {
+	}
+
+	private final MazeDemoModel model;
+	private final int runs;
+
+	/**
+	 * @param model the model providing grid, solvers, metric and solution start and target
+	 * @param runs  number of measured runs per solver
+	 */
+	public SolverBenchmark(MazeDemoModel model, int runs) {
+		if (runs < 1) {
+			throw new IllegalArgumentException("Number of runs must be positive but is " + runs);
+		}
+		this.model = model;
+		this.runs = runs;
+	}
+
+	/**
+	 * Runs the given solver from the solution start to the solution target. The solver is run once before measuring to
+	 * warm up the JIT compiler.
+	 * 
+	 * @param solver the solver
+	 * @return the benchmark result
+	 */
+	public Result run(Algorithm solver) {
+		int source = model.getGrid().cell(model.getSolverSource());
+		int target = model.getGrid().cell(model.getSolverTarget());
+		model.createSolverInstance(solver).findPath(source, target);
+		double[] millis = new double[runs];
+		GraphSearch search = null;
+		Path path = null;
+		for (int i = 0; i < runs; ++i) {
+			// solver instances are created outside of the measurement and used only once
+			search = model.createSolverInstance(solver);
+			long start = System.nanoTime();
+			path = search.findPath(source, target);
+			millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+		}
+		Arrays.sort(millis);
+		double median = runs % 2 == 1 ? millis[runs / 2] : (millis[runs / 2 - 1] + millis[runs / 2]) / 2;
+		GraphSearch lastSearch = search;
+		int expanded = (int) model.getGrid().vertices()
+				.filter(v -> lastSearch.getState(v) != TraversalState.UNVISITED).count();
+		return new Result(solver, median, expanded, pathLength(path));
+	}
+
+	private static int pathLength(Path path) {
+		int numVertices = 0;
+		for (@SuppressWarnings("unused")
+		int v : path) {
+			++numVertices;
+		}
+		return numVertices - 1;
+	}
+}
@@ -1,5 +1,5 @@
 package de.amr.maze.demo.model;
 
 public enum SolverTag {
-	DFS, BFS, INFORMED;
+	DFS, BFS, INFORMED, SLOW;
 }
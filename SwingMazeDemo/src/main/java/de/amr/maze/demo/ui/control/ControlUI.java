@@ -20,11 +20,14 @@ import org.tinylog.Logger;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Consumer;
 
 import static de.amr.swing.MySwing.*;
@@ -66,8 +69,11 @@ public class ControlUI implements PropertyChangeListener {
 	Action actionCreateSingleMaze;
 	Action actionCreateAllMazes;
 	Action actionSolveMaze;
+	Action actionBenchmarkSolvers;
 	Action actionFloodFill;
 	Action actionSaveImage;
+	Action actionOpenMaze;
+	Action actionSaveMaze;
 	Action actionVisitOnGitHub;
 
 	private final ComboBoxModel<String> renderingStyles4neighbors = new DefaultComboBoxModel<>(
@@ -110,6 +116,16 @@ public class ControlUI implements PropertyChangeListener {
 			}
 		});
 
+		view.getTxtSeed().setText(seedText(model.getSeed()));
+		view.getTxtSeed().addActionListener(e -> applySeed());
+		view.getTxtSeed().addFocusListener(new FocusAdapter() {
+
+			@Override
+			public void focusLost(FocusEvent e) {
+				applySeed();
+			}
+		});
+
 		view.getSliderDelay().setMinimum(0);
 		view.getSliderDelay().setMaximum(100);
 		view.getSliderDelay().setValue(model.getDelay());
@@ -186,8 +202,11 @@ public class ControlUI implements PropertyChangeListener {
 		actionCreateAllMazes = new CreateAllMazes("All Mazes", this, gridUI);
 		actionCreateSingleMaze = new CreateSingleMazeAction("New Maze", this, gridUI);
 		actionSolveMaze = new SolveMazeAction("Solve", this, gridUI);
+		actionBenchmarkSolvers = new BenchmarkSolversAction("Benchmark Solvers", this, gridUI);
 		actionFloodFill = new FloodFillAction("Flood-fill", this, gridUI);
 		actionSaveImage = new SaveImageAction("Save Image...", this, gridUI);
+		actionOpenMaze = new OpenMazeAction("Open Maze...", this, gridUI);
+		actionSaveMaze = new SaveMazeAction("Save Maze...", this, gridUI);
 
 		actionVisitOnGitHub = action("Visit me on GitHub", icon("/GitHub-Mark-32px.png"), e -> {
 			if (Desktop.isDesktopSupported()) {
@@ -201,6 +220,20 @@ public class ControlUI implements PropertyChangeListener {
 		});
 	}
 
+	private static String seedText(OptionalLong seed) {
+		return seed.isPresent() ? String.valueOf(seed.getAsLong()) : "";
+	}
+
+	private void applySeed() {
+		String text = view.getTxtSeed().getText().trim();
+		try {
+			model.setSeed(text.isEmpty() ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(text)));
+		} catch (NumberFormatException e) {
+			showMessage("Invalid seed '%s'", text);
+			view.getTxtSeed().setText(seedText(model.getSeed()));
+		}
+	}
+
 	@Override
 	public void propertyChange(PropertyChangeEvent change) {
 		switch (change.getPropertyName()) {
@@ -218,6 +251,9 @@ public class ControlUI implements PropertyChangeListener {
 		case "gridCellSizeIndex":
 		case "passageWidthPercentage":
 			break;
+		case "seed":
+			view.getTxtSeed().setText(seedText((OptionalLong) change.getNewValue()));
+			break;
 		case "renderingStyle": {
 			GridRenderingStyle style = (GridRenderingStyle) change.getNewValue();
 			int selection = style == GridRenderingStyle.WALL_PASSAGES ? 0 : 1;
@@ -310,6 +346,16 @@ public class ControlUI implements PropertyChangeListener {
 		window.pack();
 	}
 
+	/**
+	 * Selects the given topology in the topology combo box which creates an empty grid with this topology if the
+	 * topology changes.
+	 * 
+	 * @param topology grid topology
+	 */
+	public void selectGridTopology(GridTopology topology) {
+		view.getComboGridTopology().setSelectedItem(topology);
+	}
+
 	public void runSelectedSolver() {
 		getSelectedSolver().ifPresent(this::runSolver);
 	}
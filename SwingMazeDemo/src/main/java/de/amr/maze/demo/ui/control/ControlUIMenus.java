@@ -117,8 +117,9 @@ class ControlUIMenus {
 				generatorMenu("Graph Traversal", radio, algorithm -> algorithm.isTagged(GeneratorTag.GRAPH_TRAVERSAL)),
 				generatorMenu("Minimum Spanning Tree", radio, algorithm -> algorithm.isTagged(GeneratorTag.MIN_SPANNING_TREE)),
 				generatorMenu("Uniform Spanning Tree", radio, algorithm -> algorithm.isTagged(GeneratorTag.UNIFORM_SPANNING_TREE)),
+				generatorMenu("Parallel", radio, algorithm -> algorithm.isTagged(GeneratorTag.PARALLEL)),
 				generatorMenu("Others", radio,
-					algorithm -> !(algorithm.isTagged(GeneratorTag.GRAPH_TRAVERSAL) || algorithm.isTagged(GeneratorTag.MIN_SPANNING_TREE) || algorithm.isTagged(GeneratorTag.UNIFORM_SPANNING_TREE)))
+					algorithm -> !(algorithm.isTagged(GeneratorTag.GRAPH_TRAVERSAL) || algorithm.isTagged(GeneratorTag.MIN_SPANNING_TREE) || algorithm.isTagged(GeneratorTag.UNIFORM_SPANNING_TREE) || algorithm.isTagged(GeneratorTag.PARALLEL)))
 			)
 		.endMenu();
 		//@formatter:on
@@ -155,6 +156,8 @@ class ControlUIMenus {
 				.caption("Informed Solvers")
 				.menu(buildMetricsMenu())
 				.items(solverItems(radio, solver -> solver.isTagged(SolverTag.INFORMED)))
+				.separator()
+				.action(controlUI.actionBenchmarkSolvers)
 		.endMenu();
 		//@formatter:on
 	}
@@ -201,6 +204,8 @@ class ControlUIMenus {
 			.action(controlUI.actionCreateDenseRandomGrid)
 			.action(controlUI.actionCreateFullGrid)
 			.separator()
+			.action(controlUI.actionOpenMaze)
+			.action(controlUI.actionSaveMaze)
 			.action(controlUI.actionSaveImage)
 		.endMenu();		
 		//@formatter:on
@@ -239,6 +244,26 @@ class ControlUIMenus {
 				.onToggle(model::setGenerationAnimated)
 				.selection(model::isGenerationAnimated)
 				.endCheckBox()
+			.checkBox()
+				.text("Record animated generation (APNG)")
+				.onToggle(model::setGenerationRecorded)
+				.selection(model::isGenerationRecorded)
+				.endCheckBox()
+			.checkBox()
+				.text("Generate in compact grid (no animation)")
+				.onToggle(model::setGenerationCompact)
+				.selection(model::isGenerationCompact)
+				.endCheckBox()
+			.checkBox()
+				.text("Report speedup of parallel generation (runs sequential version)")
+				.onToggle(model::setSpeedupReported)
+				.selection(model::isSpeedupReported)
+				.endCheckBox()
+			.checkBox()
+				.text("Verify maze during generation")
+				.onToggle(model::setVerificationIncremental)
+				.selection(model::isVerificationIncremental)
+				.endCheckBox()
 			.checkBox()
 				.text("Show distances")
 				.onToggle(model::setDistancesVisible)
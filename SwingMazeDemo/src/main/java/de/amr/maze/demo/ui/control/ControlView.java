@@ -12,6 +12,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.border.EmptyBorder;
 
@@ -46,6 +47,8 @@ public class ControlView extends JPanel {
 	private JComboBox<GridTopology> comboGridTopology;
 	private JLabel lblRenderingStyle;
 	private JComboBox<String> comboRenderingStyle;
+	private JLabel lblSeed;
+	private JTextField txtSeed;
 
 	public ControlView() {
 		setPreferredSize(new Dimension(520, 520));
@@ -142,6 +145,14 @@ public class ControlView extends JPanel {
 		sliderPassageWidth.setPaintTicks(true);
 		collapsibleArea.add(sliderPassageWidth, "cell 2 5,growx");
 
+		lblSeed = new JLabel("Random Seed");
+		collapsibleArea.add(lblSeed, "cell 0 6");
+
+		txtSeed = new JTextField();
+		txtSeed.setToolTipText("Seed for maze generation (empty = random)");
+		lblSeed.setLabelFor(txtSeed);
+		collapsibleArea.add(txtSeed, "cell 2 6,growx");
+
 		scrollPane = new JScrollPane();
 		collapsibleArea.add(scrollPane, "cell 0 7 3 1,grow");
 
@@ -214,4 +225,8 @@ public class ControlView extends JPanel {
 	public JComboBox<String> getComboRenderingStyle() {
 		return comboRenderingStyle;
 	}
+
+	public JTextField getTxtSeed() {
+		return txtSeed;
+	}
 }
@@ -0,0 +1,127 @@
+package de.amr.maze.demo.ui.control.action;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JDialog;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+import de.amr.maze.demo.model.Algorithm;
+import de.amr.maze.demo.model.MazeDemoModel;
+import de.amr.maze.demo.model.SolverBenchmark;
+import de.amr.maze.demo.model.SolverTag;
+import de.amr.maze.demo.ui.control.ControlUI;
+import de.amr.maze.demo.ui.grid.GridUI;
+
+/**
+ * Runs all maze solvers on the current grid without animation and shows the measured times, the number of expanded
+ * vertices and the path lengths in a sortable table.
+ * 
+ * @author Armin Reichert
+ */
+public class BenchmarkSolversAction extends MazeDemoAction {
+
+	private static final int RUNS = 5;
+
+	// slow solvers take minutes on larger grids
+	private static final int SLOW_SOLVER_MAX_CELLS = 10_000;
+
+	public BenchmarkSolversAction(String name, ControlUI controlUI, GridUI gridUI) {
+		super(name, controlUI, gridUI);
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		MazeDemoModel model = controlUI.getModel();
+		controlUI.startBackgroundThread(
+
+				() -> {
+					var benchmark = new SolverBenchmark(model, RUNS);
+					var results = new ArrayList<SolverBenchmark.Result>();
+					controlUI.showMessage("Benchmarking solvers (median of %d runs, metric %s)", RUNS, model.getMetric());
+					for (Algorithm solver : model.solvers().toList()) {
+						if (Thread.currentThread().isInterrupted()) {
+							controlUI.showMessage("Benchmark interrupted");
+							break;
+						}
+						if (solver.isTagged(SolverTag.SLOW) && model.getGrid().numVertices() > SLOW_SOLVER_MAX_CELLS) {
+							controlUI.showMessage("%s: skipped, grid too large", solver.getDescription());
+							continue;
+						}
+						var result = benchmark.run(solver);
+						controlUI.showMessage("%s: %.3f ms", solver.getDescription(), result.medianMillis());
+						results.add(result);
+					}
+					SwingUtilities.invokeLater(() -> showResults(results));
+				},
+
+				interruption -> controlUI.showMessage("Benchmark interrupted"),
+
+				failure -> {
+					failure.printStackTrace(System.err);
+					controlUI.showMessage("Benchmark failed: %s", failure.getMessage());
+				});
+	}
+
+	private void showResults(List<SolverBenchmark.Result> results) {
+		MazeDemoModel model = controlUI.getModel();
+		JTable table = new JTable(new ResultTableModel(results));
+		table.setAutoCreateRowSorter(true);
+		String title = "Solver Benchmark - %d x %d cells, %s metric, median of %d runs".formatted(
+				model.getGrid().numCols(), model.getGrid().numRows(), model.getMetric(), RUNS);
+		JDialog dialog = new JDialog(controlUI.getWindow(), title);
+		dialog.getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+		dialog.pack();
+		dialog.setLocationRelativeTo(controlUI.getWindow());
+		dialog.setVisible(true);
+	}
+
+	private static class ResultTableModel extends AbstractTableModel {
+
+		private static final String[] COLUMN_NAMES = { "Solver", "Time (ms)", "Expanded Vertices", "Path Length" };
+		private static final Class<?>[] COLUMN_CLASSES = { String.class, Double.class, Integer.class, Integer.class };
+
+		private final List<SolverBenchmark.Result> results;
+
+		public ResultTableModel(List<SolverBenchmark.Result> results) {
+			this.results = results;
+		}
+
+		@Override
+		public int getRowCount() {
+			return results.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMN_NAMES.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMN_NAMES[column];
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			return COLUMN_CLASSES[column];
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			var result = results.get(row);
+			return switch (column) {
+			case 0 -> result.solver().getDescription();
+			case 1 -> result.medianMillis();
+			case 2 -> result.expandedVertices();
+			case 3 -> result.pathLength();
+			default -> throw new IllegalArgumentException("Illegal column: " + column);
+			};
+		}
+	}
+}
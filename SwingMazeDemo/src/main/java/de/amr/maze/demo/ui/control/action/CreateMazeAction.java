@@ -2,23 +2,31 @@ package de.amr.maze.demo.ui.control.action;
 
 import static java.lang.String.format;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import de.amr.demos.maze.common.ApngRecorder;
+import de.amr.demos.maze.common.MazeVerifier;
+import de.amr.maze.demo.alg.ParallelMazeGenerator;
 import de.amr.maze.demo.model.Algorithm;
 import de.amr.maze.demo.model.GeneratorTag;
 import de.amr.maze.demo.model.MazeDemoModel;
 import de.amr.maze.demo.ui.control.ControlUI;
+import de.amr.maze.demo.ui.grid.FramePacedGridAnimation;
 import de.amr.maze.demo.ui.grid.GridUI;
 import de.amr.graph.core.api.TraversalState;
 import de.amr.graph.grid.api.GridGraph2D;
 import de.amr.graph.grid.api.GridPosition;
 import de.amr.graph.grid.impl.ObservableGridGraph;
 import de.amr.graph.grid.ui.rendering.PearlsGridRenderer;
-import de.amr.graph.pathfinder.util.GraphSearchUtils;
-import de.amr.graph.util.GraphUtils;
 import de.amr.maze.alg.core.MazeGenerator;
 import de.amr.util.StopWatch;
 
 public abstract class CreateMazeAction extends MazeDemoAction {
 
+	private static final File RECORDING_PATH = new File(System.getProperty("user.dir"), "recordings");
+
 	protected MazeDemoModel model;
 
 	protected CreateMazeAction(String name, ControlUI controlUI, GridUI gridUI) {
@@ -30,19 +38,30 @@ public abstract class CreateMazeAction extends MazeDemoAction {
 
 	protected void createMaze(Algorithm genInfo, GridPosition startPosition) {
 		ObservableGridGraph<TraversalState, Integer> grid = model.getGrid();
-		MazeGenerator gen = null;
-		try {
-			gen = (MazeGenerator) genInfo.getAlgorithmClass().getConstructor(GridGraph2D.class).newInstance(grid);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
 		int startCell = grid.cell(startPosition);
 		int x = grid.col(startCell);
 		int y = grid.row(startCell);
 		controlUI.showMessage("Generating maze (%d cells) using '%s' algorithm...", grid.numVertices(),
 				genInfo.getDescription());
+		MazeVerifier<TraversalState, Integer> verifier = null;
 		if (model.isGenerationAnimated()) {
-			gen.createMaze(x, y);
+			if (model.isVerificationIncremental()) {
+				verifier = new MazeVerifier<>(grid);
+				grid.addGraphObserver(verifier);
+			}
+			ApngRecorder recorder = model.isGenerationRecorded() ? startRecording(genInfo) : null;
+			try {
+				createGenerator(genInfo.getAlgorithmClass(), grid).createMaze(x, y);
+				gridUI.flushAnimation();
+			} finally {
+				// also if the generation has been stopped, otherwise the verifier would observe all later changes
+				if (verifier != null) {
+					grid.removeGraphObserver(verifier);
+				}
+				if (recorder != null) {
+					stopRecording(recorder);
+				}
+			}
 			// TODO: make Pearls renderer work correctly for algorithms that remove edges,
 			// render resulting grid correctly for now
 			if (genInfo.isTagged(GeneratorTag.EDGE_DELETING) && gridUI.getRenderer() instanceof PearlsGridRenderer) {
@@ -50,37 +69,101 @@ public abstract class CreateMazeAction extends MazeDemoAction {
 				gridUI.drawGrid();
 			}
 		} else {
-			gridUI.enableAnimation(false);
-			gridUI.clear();
+			// generate on a grid without observers and replace the model grid when done, this redraws the grid once
+			GridGraph2D<TraversalState, Integer> detachedGrid = model.createDetachedGrid();
+			// a compact grid cannot be observed, its maze is verified after generation
+			if (model.isVerificationIncremental()
+					&& detachedGrid instanceof ObservableGridGraph<TraversalState, Integer> observableGrid) {
+				verifier = new MazeVerifier<>(observableGrid);
+				observableGrid.addGraphObserver(verifier);
+			}
+			MazeGenerator gen = createGenerator(genInfo.getAlgorithmClass(), detachedGrid);
 			StopWatch watch = new StopWatch();
 			watch.start();
 			gen.createMaze(x, y);
 			watch.stop();
-			controlUI.showMessage(format("Maze generation: %.0f ms.", watch.getMillis()));
-			watch.measure(gridUI::drawGrid);
+			double generationMillis = watch.getMillis();
+			controlUI.showMessage(format("Maze generation: %.0f ms.", generationMillis));
+			watch.measure(() -> model.attachGrid(detachedGrid));
 			controlUI.showMessage(format("Grid rendering:  %.0f ms.", watch.getMillis()));
-			gridUI.enableAnimation(true);
+			if (verifier != null) {
+				// the observed grid is the model grid now
+				model.getGrid().removeGraphObserver(verifier);
+			}
+			// the maze is already shown, the sequential run only measures the speedup
+			if (model.isSpeedupReported() && gen instanceof ParallelMazeGenerator parallelGen) {
+				compareWithSequentialGenerator(parallelGen, x, y, generationMillis);
+			}
+		}
+		if (verifier != null) {
+			verifyMaze(verifier.result());
+		} else {
+			verifyMaze(MazeVerifier.verify(model.getGrid()));
+		}
+	}
+
+	// records the animation frames drawn into the grid canvas as APNG, returns null if the file cannot be created
+	private ApngRecorder startRecording(Algorithm genInfo) {
+		ObservableGridGraph<TraversalState, Integer> grid = model.getGrid();
+		String fileName = "maze_%dx%d_%s.png".formatted(grid.numCols(), grid.numRows(),
+				genInfo.getAlgorithmClass().getSimpleName());
+		ApngRecorder recorder = new ApngRecorder();
+		recorder.setLoop(true);
+		recorder.setDelayMillis(model.getDelay() > 0 ? model.getDelay() : 1000 / FramePacedGridAnimation.FRAMES_PER_SECOND);
+		recorder.setEndDelayMillis(2000);
+		try {
+			recorder.start(RECORDING_PATH, fileName);
+		} catch (IOException e) {
+			controlUI.showMessage("Recording not possible: %s", e.getMessage());
+			return null;
 		}
-		verifyMaze(grid);
+		recorder.requestFrame(gridUI.getView().getCanvas().getDrawingBuffer(), true);
+		gridUI.setAnimationRecorder(recorder);
+		controlUI.showMessage("Recording animation to '%s'", new File(RECORDING_PATH, fileName));
+		return recorder;
+	}
+
+	private void stopRecording(ApngRecorder recorder) {
+		gridUI.setAnimationRecorder(null);
+		try {
+			recorder.close();
+			controlUI.showMessage("Recording finished (%d frames)", recorder.getFramesWritten());
+		} catch (UncheckedIOException e) {
+			controlUI.showMessage("Recording failed: %s", e.getCause().getMessage());
+		}
+	}
+
+	private MazeGenerator createGenerator(Class<?> generatorClass, GridGraph2D<TraversalState, Integer> grid) {
+		if (model.getSeed().isPresent() && !MazeDemoModel.isSeedable(generatorClass)) {
+			controlUI.showMessage("'%s' cannot be seeded, maze is random", generatorClass.getSimpleName());
+		}
+		return model.createGeneratorInstance(generatorClass, grid);
+	}
+
+	// runs the sequential generator on a grid of the same size, the resulting maze is not used
+	private void compareWithSequentialGenerator(ParallelMazeGenerator parallelGen, int x, int y, double parallelMillis) {
+		MazeGenerator sequentialGen = model.createGeneratorInstance(parallelGen.sequentialGenerator(),
+				model.createDetachedGrid());
+		StopWatch watch = new StopWatch();
+		watch.measure(() -> sequentialGen.createMaze(x, y));
+		controlUI.showMessage(format("Sequential '%s': %.0f ms, speedup %.1f", parallelGen.sequentialGenerator()
+				.getSimpleName(), watch.getMillis(), watch.getMillis() / Math.max(parallelMillis, 1)));
 	}
 
-	private void verifyMaze(ObservableGridGraph<TraversalState, Integer> grid) {
-		boolean maze = true;
-		if (grid.numEdges() != grid.numVertices() - 1) {
-			maze = false;
-			controlUI
-					.showMessage(format("Number of edges not ok, is %d, should be %d", grid.numEdges(), grid.numVertices() - 1));
+	private void verifyMaze(MazeVerifier.Result result) {
+		controlUI.showMessage(format("Maze verification: %.0f ms.", result.millis()));
+		if (result.numEdges() != result.numVertices() - 1) {
+			controlUI.showMessage(
+					format("Number of edges not ok, is %d, should be %d", result.numEdges(), result.numVertices() - 1));
 		}
-		if (GraphUtils.containsCycle(grid)) {
-			maze = false;
+		if (result.numCycles() > 0) {
 			controlUI.showMessage("Graph contains cycle");
 		}
-		if (!GraphSearchUtils.isConnectedGraph(grid)) {
-			maze = false;
+		if (result.numComponents() > 1) {
 			controlUI.showMessage("Graph is not connected");
 		}
-		if (!maze) {
+		if (!result.isMaze()) {
 			controlUI.showMessage("NO MAZE!");
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package de.amr.maze.demo.ui.control.action;
+
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+
+import javax.swing.JFileChooser;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import de.amr.demos.maze.common.MazeFile;
+import de.amr.maze.demo.ui.control.ControlUI;
+import de.amr.maze.demo.ui.grid.GridUI;
+
+/**
+ * Opens a maze saved in the binary maze file format and makes it the current maze.
+ * 
+ * @author Armin Reichert
+ */
+public class OpenMazeAction extends MazeDemoAction {
+
+	public OpenMazeAction(String name, ControlUI controlUI, GridUI gridUI) {
+		super(name, controlUI, gridUI);
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		var fileChooser = new JFileChooser();
+		fileChooser.setFileFilter(new FileNameExtensionFilter("Maze files", MazeFile.EXTENSION));
+		int status = fileChooser.showOpenDialog(controlUI.getWindow());
+		if (status == JFileChooser.APPROVE_OPTION) {
+			var file = fileChooser.getSelectedFile();
+			try {
+				var maze = MazeFile.load(file.toPath());
+				controlUI.selectGridTopology(maze.getTopology());
+				controlUI.getModel().setGrid(maze);
+				controlUI.showMessage("Maze (%d cols x %d rows) loaded from '%s'", maze.numCols(), maze.numRows(), file);
+			} catch (IOException x) {
+				controlUI.showMessage("Maze could not be loaded: '%s'", x.getMessage());
+			}
+		}
+	}
+}
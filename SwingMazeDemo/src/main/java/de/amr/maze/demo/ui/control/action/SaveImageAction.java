@@ -8,16 +8,26 @@ import javax.imageio.ImageIO;
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import de.amr.demos.maze.common.MazeSvgWriter;
+import de.amr.graph.core.api.TraversalState;
+import de.amr.graph.grid.impl.ObservableGridGraph;
+import de.amr.maze.demo.model.MazeDemoModel;
 import de.amr.maze.demo.ui.control.ControlUI;
 import de.amr.maze.demo.ui.grid.GridUI;
 
 /**
- * Saves the current maze as an image file.
+ * Saves the current maze as an image file, either as PNG image of the canvas or as SVG vector image including the
+ * path from the solver source to the solver target.
  * 
  * @author Armin Reichert
  */
 public class SaveImageAction extends MazeDemoAction {
 
+	private static final FileNameExtensionFilter PNG_FILTER = new FileNameExtensionFilter("Portable Network Graphics",
+			"png");
+	private static final FileNameExtensionFilter SVG_FILTER = new FileNameExtensionFilter("Scalable Vector Graphics",
+			MazeSvgWriter.EXTENSION, MazeSvgWriter.COMPRESSED_EXTENSION);
+
 	public SaveImageAction(String name, ControlUI controlUI, GridUI gridUI) {
 		super(name, controlUI, gridUI);
 	}
@@ -25,20 +35,38 @@ public class SaveImageAction extends MazeDemoAction {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		var fileChooser = new JFileChooser();
-		fileChooser.setFileFilter(new FileNameExtensionFilter("Portable Network Graphics", "png"));
+		fileChooser.addChoosableFileFilter(PNG_FILTER);
+		fileChooser.addChoosableFileFilter(SVG_FILTER);
+		fileChooser.setFileFilter(PNG_FILTER);
 		int status = fileChooser.showSaveDialog(controlUI.getWindow());
 		if (status == JFileChooser.APPROVE_OPTION) {
 			var file = fileChooser.getSelectedFile();
 			var fileName = file.getName();
-			if (!fileName.endsWith(".png")) {
+			boolean svg = SVG_FILTER.accept(file) || fileChooser.getFileFilter() == SVG_FILTER && !PNG_FILTER.accept(file);
+			if (svg && !SVG_FILTER.accept(file)) {
+				file = new File(file.getParentFile(), fileName + "." + MazeSvgWriter.EXTENSION);
+			} else if (!svg && !fileName.endsWith(".png")) {
 				file = new File(file.getParentFile(), fileName + ".png");
 			}
 			try {
-				ImageIO.write(gridUI.getView().getCanvas().getDrawingBuffer(), "png", file);
-				controlUI.showMessage("PNG image saved as '%s'", file);
-			} catch (IOException x) {
+				if (svg) {
+					saveSvgImage(file);
+				} else {
+					ImageIO.write(gridUI.getView().getCanvas().getDrawingBuffer(), "png", file);
+					controlUI.showMessage("PNG image saved as '%s'", file);
+				}
+			} catch (IOException | IllegalArgumentException x) {
 				controlUI.showMessage("Image could not be saved: '%s'", x.getMessage());
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	private void saveSvgImage(File file) throws IOException {
+		MazeDemoModel model = gridUI.getModel();
+		ObservableGridGraph<TraversalState, Integer> grid = model.getGrid();
+		MazeSvgWriter writer = gridUI.createSvgWriter();
+		writer.setSolution(grid.cell(model.getSolverSource()), grid.cell(model.getSolverTarget()));
+		writer.write(file);
+		controlUI.showMessage("SVG image saved as '%s' (%d bytes)", file, file.length());
+	}
+}
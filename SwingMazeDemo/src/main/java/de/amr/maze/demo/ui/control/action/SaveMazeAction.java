@@ -0,0 +1,44 @@
+package de.amr.maze.demo.ui.control.action;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JFileChooser;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import de.amr.demos.maze.common.MazeFile;
+import de.amr.maze.demo.ui.control.ControlUI;
+import de.amr.maze.demo.ui.grid.GridUI;
+
+/**
+ * Saves the current maze in the binary maze file format.
+ * 
+ * @author Armin Reichert
+ */
+public class SaveMazeAction extends MazeDemoAction {
+
+	public SaveMazeAction(String name, ControlUI controlUI, GridUI gridUI) {
+		super(name, controlUI, gridUI);
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		var fileChooser = new JFileChooser();
+		fileChooser.setFileFilter(new FileNameExtensionFilter("Maze files", MazeFile.EXTENSION));
+		int status = fileChooser.showSaveDialog(controlUI.getWindow());
+		if (status == JFileChooser.APPROVE_OPTION) {
+			var file = fileChooser.getSelectedFile();
+			var fileName = file.getName();
+			if (!fileName.endsWith("." + MazeFile.EXTENSION)) {
+				file = new File(file.getParentFile(), fileName + "." + MazeFile.EXTENSION);
+			}
+			try {
+				MazeFile.save(controlUI.getModel().getGrid(), file.toPath());
+				controlUI.showMessage("Maze saved as '%s'", file);
+			} catch (IOException x) {
+				controlUI.showMessage("Maze could not be saved: '%s'", x.getMessage());
+			}
+		}
+	}
+}
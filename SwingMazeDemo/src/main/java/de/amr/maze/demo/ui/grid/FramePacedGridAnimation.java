@@ -0,0 +1,166 @@
+package de.amr.maze.demo.ui.grid;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntSupplier;
+
+import de.amr.demos.maze.common.FrameRecorder;
+import de.amr.graph.core.api.ObservableGraph;
+import de.amr.graph.event.EdgeEvent;
+import de.amr.graph.event.GraphObserver;
+import de.amr.graph.event.VertexEvent;
+import de.amr.graph.grid.api.GridGraph2D;
+import de.amr.graph.grid.ui.animation.AnimationInterruptedException;
+import de.amr.graph.grid.ui.rendering.GridCanvas;
+
+/**
+ * Grid animation which draws the changed cells and passages of the grid at most once per display frame.
+ * <p>
+ * With a delay, each change is drawn immediately followed by the delay, like by
+ * {@link de.amr.graph.grid.ui.animation.GridCanvasAnimation}. Without delay, the changed cells and passages are only
+ * collected and drawn together when the frame time is over, so a cell changed several times during a frame is drawn
+ * only once, in its final state. Drawing happens in the thread changing the grid, so no locking is needed. Call
+ * {@link #flush()} when the changes are complete to draw the changes of the last frame.
+ * <p>
+ * If a recorder is set, each drawn frame is requested from the recorder together with the area covered by the drawn
+ * cells and passages.
+ * 
+ * @author Armin Reichert
+ */
+public class FramePacedGridAnimation<V, E> implements GraphObserver<V, E> {
+
+	public static final int FRAMES_PER_SECOND = 60;
+
+	private static final long FRAME_NANOS = 1_000_000_000L / FRAMES_PER_SECOND;
+
+	public IntSupplier fnDelay = () -> 0;
+
+	private final GridCanvas canvas;
+	private final BitSet dirtyCells = new BitSet();
+	private int[] dirtyPassages = new int[256]; // pairs of cells
+	private int numDirtyPassages;
+	private long nextFrameTime;
+	private boolean enabled = true;
+	private FrameRecorder recorder;
+
+	public FramePacedGridAnimation(GridCanvas canvas) {
+		this.canvas = canvas;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setRecorder(FrameRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	@Override
+	public void vertexChanged(VertexEvent<V, E> e) {
+		if (enabled) {
+			dirtyCells.set(e.getVertex());
+			changed();
+		}
+	}
+
+	@Override
+	public void edgeAdded(EdgeEvent<V, E> e) {
+		passageChanged(e);
+	}
+
+	@Override
+	public void edgeRemoved(EdgeEvent<V, E> e) {
+		passageChanged(e);
+	}
+
+	@Override
+	public void edgeChanged(EdgeEvent<V, E> e) {
+		passageChanged(e);
+	}
+
+	@Override
+	public void graphChanged(ObservableGraph<V, E> graph) {
+		if (enabled) {
+			clearChanges();
+			canvas.drawGrid();
+			if (recorder != null) {
+				recorder.requestFrame(canvas.getDrawingBuffer());
+			}
+		}
+	}
+
+	private void passageChanged(EdgeEvent<V, E> e) {
+		if (enabled) {
+			if (2 * numDirtyPassages + 2 > dirtyPassages.length) {
+				dirtyPassages = Arrays.copyOf(dirtyPassages, 2 * dirtyPassages.length);
+			}
+			dirtyPassages[2 * numDirtyPassages] = e.getEither();
+			dirtyPassages[2 * numDirtyPassages + 1] = e.getOther();
+			++numDirtyPassages;
+			changed();
+		}
+	}
+
+	private void changed() {
+		int delay = fnDelay.getAsInt();
+		if (delay > 0) {
+			flush();
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException x) {
+				throw new AnimationInterruptedException();
+			}
+		} else if (System.nanoTime() >= nextFrameTime) {
+			flush();
+		}
+	}
+
+	/**
+	 * Draws the cells and passages changed since the last frame in their current state.
+	 */
+	public void flush() {
+		GridGraph2D<?, ?> grid = canvas.getGrid();
+		Rectangle changedArea = null;
+		for (int i = 0; i < numDirtyPassages; ++i) {
+			int either = dirtyPassages[2 * i], other = dirtyPassages[2 * i + 1];
+			canvas.drawGridPassage(either, other, grid.adjacent(either, other));
+			if (recorder != null) {
+				changedArea = addCellArea(addCellArea(changedArea, either), other);
+			}
+		}
+		for (int cell = dirtyCells.nextSetBit(0); cell >= 0; cell = dirtyCells.nextSetBit(cell + 1)) {
+			canvas.drawGridCell(cell);
+			if (recorder != null) {
+				changedArea = addCellArea(changedArea, cell);
+			}
+		}
+		clearChanges();
+		canvas.repaint();
+		if (changedArea != null) {
+			recorder.requestFrame(canvas.getDrawingBuffer(), changedArea);
+		}
+		nextFrameTime = System.nanoTime() + FRAME_NANOS;
+	}
+
+	// adds the canvas area covered by the given cell
+	private Rectangle addCellArea(Rectangle area, int cell) {
+		GridGraph2D<?, ?> grid = canvas.getGrid();
+		int cellSize = canvas.getCellSize();
+		Rectangle cellArea = new Rectangle(grid.col(cell) * cellSize, grid.row(cell) * cellSize, cellSize, cellSize);
+		if (area == null) {
+			return cellArea;
+		}
+		area.add(cellArea);
+		return area;
+	}
+
+	private void clearChanges() {
+		dirtyCells.clear();
+		numDirtyPassages = 0;
+	}
+}
@@ -1,10 +1,12 @@
 package de.amr.maze.demo.ui.grid;
 
+import de.amr.demos.maze.common.FrameRecorder;
+import de.amr.demos.maze.common.MazeSvgWriter;
 import de.amr.graph.core.api.TraversalState;
 import de.amr.graph.grid.impl.Grid8Topology;
 import de.amr.graph.grid.impl.ObservableGridGraph;
 import de.amr.graph.grid.ui.animation.BFSAnimation;
-import de.amr.graph.grid.ui.animation.GridCanvasAnimation;
+import de.amr.graph.grid.ui.rendering.ConfigurableGridRenderer;
 import de.amr.graph.grid.ui.rendering.GridRenderer;
 import de.amr.maze.demo.model.GridRenderingStyle;
 import de.amr.maze.demo.model.MazeDemoModel;
@@ -36,7 +38,7 @@ public class GridUI implements PropertyChangeListener {
 	private JFrame window;
 	private GridView gridView;
 	private Dimension gridViewSize;
-	private GridCanvasAnimation<TraversalState, Integer> animation;
+	private FramePacedGridAnimation<TraversalState, Integer> animation;
 
 	public GridUI(MazeDemoModel model, int width, int height) {
 		this.model = model;
@@ -146,8 +148,21 @@ public class GridUI implements PropertyChangeListener {
 		return gridView.getCanvas().getRenderer();
 	}
 
+	/**
+	 * @return writer for saving the current maze as SVG image with the current cell size, passage width and colors
+	 */
+	public MazeSvgWriter createSvgWriter() {
+		ConfigurableGridRenderer renderer = (ConfigurableGridRenderer) getRenderer();
+		ObservableGridGraph<TraversalState, Integer> grid = model.getGrid();
+		int cellSize = model.getGridCellSize();
+		// all passages of the SVG image have the same width, also if the passage width is fluent
+		int passageWidth = max(1, min(cellSize - 1, cellSize * model.getPassageWidthPercentage() / 100));
+		return new MazeSvgWriter(grid, cellSize, passageWidth, renderer.getGridBgColor(),
+				renderer.getCellBgColor(grid.cell(model.getSolverSource())));
+	}
+
 	private void addCanvasAnimation() {
-		animation = new GridCanvasAnimation<>(gridView.getCanvas());
+		animation = new FramePacedGridAnimation<>(gridView.getCanvas());
 		animation.fnDelay = model::getDelay;
 		model.getGrid().addGraphObserver(animation);
 	}
@@ -160,6 +175,21 @@ public class GridUI implements PropertyChangeListener {
 		animation.setEnabled(enabled);
 	}
 
+	/**
+	 * @param recorder
+	 *                   recorder getting a frame request for each drawn animation frame or {@code null}
+	 */
+	public void setAnimationRecorder(FrameRecorder recorder) {
+		animation.setRecorder(recorder);
+	}
+
+	/**
+	 * Draws the grid changes not yet drawn by the animation.
+	 */
+	public void flushAnimation() {
+		animation.flush();
+	}
+
 	private int passageWidth(int either, int other) {
 		int w = model.getGridCellSize() * model.getPassageWidthPercentage() / 100;
 		if (model.isPassageWidthFluent()) {